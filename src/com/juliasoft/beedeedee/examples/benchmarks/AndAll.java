@@ -0,0 +1,114 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.examples.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+import com.juliasoft.beedeedee.factories.Factory;
+
+/**
+ * Compares the n-queens constraint built by conjoining its clauses one after
+ * the other with the same constraint built through {@link Factory#andAll(java.util.Collection)}.
+ * It reports the time, the nodes in the table at the end, garbage included,
+ * and the nodes that are still alive.
+ */
+public class AndAll {
+	private static int N = 9;
+	private static int utSize = 1000 * 1000;
+	private static int cacheSize = 100000;
+	private static int rounds = 3;
+
+	public static void main(String[] args) {
+		processArgs(args);
+
+		System.out.println("method\ttime\tnodes\talive\tsolutions");
+		for (boolean andAll: new boolean[] { false, true }) {
+			long best = Long.MAX_VALUE, nodes = 0, alive = 0, solutions = 0;
+
+			for (int round = 0; round < rounds; round++) {
+				Factory factory = Factory.mk(utSize, cacheSize);
+				List<BDD> clauses = clauses(factory);
+
+				long start = System.currentTimeMillis();
+				BDD queen;
+				if (andAll)
+					queen = factory.andAll(clauses);
+				else {
+					queen = factory.makeOne();
+					for (BDD clause: clauses)
+						queen.andWith(clause.copy());
+				}
+
+				best = Math.min(best, System.currentTimeMillis() - start);
+				nodes = factory.nodesCount();
+				clauses.forEach(BDD::free);
+				factory.gc();
+				alive = factory.nodesCount();
+				solutions = queen.satCount(N * N - 1);
+				factory.done();
+			}
+
+			System.out.printf("%s\t%dms\t%d\t%d\t%d%n", andAll ? "andAll" : "andWith", best, nodes, alive, solutions);
+		}
+	}
+
+	private static void processArgs(String[] args) {
+		for (String arg: args) {
+			if (arg.startsWith("-n"))
+				N = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-u"))
+				utSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-c"))
+				cacheSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-r"))
+				rounds = Integer.parseInt(arg.substring(2));
+		}
+	}
+
+	private static List<BDD> clauses(Factory factory) {
+		List<BDD> clauses = new ArrayList<>();
+
+		for (int i = 0; i < N; i++) {
+			BDD e = factory.makeZero();
+			for (int j = 0; j < N; j++)
+				e.orWith(factory.makeVar(i * N + j));
+
+			clauses.add(e);
+		}
+
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++) {
+				BDD x = factory.makeVar(i * N + j);
+
+				for (int k = 0; k < N; k++)
+					for (int l = 0; l < N; l++)
+						if ((k != i || l != j) && (k == i || l == j || k - i == l - j || k - i == j - l)) {
+							BDD y = factory.makeVar(k * N + l);
+							clauses.add(x.nand(y));
+							y.free();
+						}
+
+				x.free();
+			}
+
+		return clauses;
+	}
+}
@@ -0,0 +1,117 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.examples.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+import com.juliasoft.beedeedee.factories.Factory;
+import com.juliasoft.beedeedee.factories.OperationCache;
+
+/**
+ * Measures the effect of {@link Factory#setCacheAdmissionHeight(int)}: for
+ * each height, it builds the n-queens constraint and reports the time, the
+ * hit rate of the APPLY cache and the subproblems that skipped the cache.
+ */
+public class CacheAdmission {
+	private static int N = 9;
+	private static int utSize = 1000 * 1000;
+	private static int cacheSize = 10000;
+	private static int rounds = 3;
+
+	public static void main(String[] args) {
+		List<Integer> heights = processArgs(args);
+
+		System.out.println("height\ttime\tlookups\thits\tskipped");
+		for (int height: heights) {
+			long best = Long.MAX_VALUE, lookups = 0, hits = 0, skipped = 0;
+
+			for (int round = 0; round < rounds; round++) {
+				Factory factory = Factory.mk(utSize, cacheSize);
+				factory.setCacheRatio(0);
+				factory.setCacheAdmissionHeight(height);
+				factory.setCacheStatistics(true);
+
+				long start = System.currentTimeMillis();
+				queens(factory).free();
+				best = Math.min(best, System.currentTimeMillis() - start);
+
+				lookups = factory.getCacheLookups(OperationCache.APPLY);
+				hits = factory.getCacheHits(OperationCache.APPLY);
+				skipped = factory.getSkippedCacheLookups();
+				factory.done();
+			}
+
+			System.out.printf("%d\t%dms\t%d\t%.1f%%\t%d%n", height, best, lookups, 100.0 * hits / Math.max(1, lookups), skipped);
+		}
+	}
+
+	private static List<Integer> processArgs(String[] args) {
+		List<Integer> heights = new ArrayList<>();
+
+		for (String arg: args) {
+			if (arg.startsWith("-n"))
+				N = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-u"))
+				utSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-c"))
+				cacheSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-r"))
+				rounds = Integer.parseInt(arg.substring(2));
+			else
+				heights.add(Integer.parseInt(arg));
+		}
+
+		if (heights.isEmpty())
+			for (int height = 0; height <= 16; height += 4)
+				heights.add(height);
+
+		return heights;
+	}
+
+	private static BDD queens(Factory factory) {
+		BDD queen = factory.makeOne();
+
+		for (int i = 0; i < N; i++) {
+			BDD e = factory.makeZero();
+			for (int j = 0; j < N; j++)
+				e.orWith(factory.makeVar(i * N + j));
+
+			queen.andWith(e);
+		}
+
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++) {
+				BDD x = factory.makeVar(i * N + j);
+
+				for (int k = 0; k < N; k++)
+					for (int l = 0; l < N; l++)
+						if ((k != i || l != j) && (k == i || l == j || k - i == l - j || k - i == j - l)) {
+							BDD y = factory.makeVar(k * N + l);
+							queen.andWith(x.nand(y));
+							y.free();
+						}
+
+				x.free();
+			}
+
+		return queen;
+	}
+}
@@ -0,0 +1,135 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.examples.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+import com.juliasoft.beedeedee.factories.ComputationCacheKind;
+import com.juliasoft.beedeedee.factories.Factory;
+import com.juliasoft.beedeedee.factories.UniqueTableKind;
+
+/**
+ * Compares the implementations of the cache of APPLY computations. All
+ * threads build the n-queens constraint over the same variables, so that
+ * they find the nodes already in the table and most of their work consists
+ * of hits in the shared cache.
+ */
+public class ComputationCacheScalability {
+	private static int N = 8;
+	private static int utSize = 1000 * 1000;
+	private static int cacheSize = 100000;
+	private static int maxThreads = Runtime.getRuntime().availableProcessors();
+	private static int rounds = 3;
+
+	public static void main(String[] args) throws InterruptedException {
+		List<ComputationCacheKind> kinds = processArgs(args);
+
+		System.out.println("threads\t" + kinds);
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			System.out.print(threads);
+
+			for (ComputationCacheKind kind: kinds) {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < rounds; round++)
+					best = Math.min(best, run(kind, threads));
+
+				System.out.print("\t" + best + "ms");
+			}
+
+			System.out.println();
+		}
+	}
+
+	private static List<ComputationCacheKind> processArgs(String[] args) {
+		List<ComputationCacheKind> kinds = new ArrayList<>();
+
+		for (String arg: args) {
+			if (arg.startsWith("-n"))
+				N = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-u"))
+				utSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-c"))
+				cacheSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-t"))
+				maxThreads = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-r"))
+				rounds = Integer.parseInt(arg.substring(2));
+			else
+				kinds.add(ComputationCacheKind.valueOf(arg));
+		}
+
+		if (kinds.isEmpty())
+			for (ComputationCacheKind kind: ComputationCacheKind.values())
+				kinds.add(kind);
+
+		return kinds;
+	}
+
+	private static long run(ComputationCacheKind kind, int threads) throws InterruptedException {
+		Factory factory = Factory.mk(utSize, cacheSize, UniqueTableKind.CHAINED, false, kind);
+		Thread[] workers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++)
+			workers[t] = new Thread(() -> queens(factory).free());
+
+		long start = System.currentTimeMillis();
+
+		for (Thread worker: workers)
+			worker.start();
+
+		for (Thread worker: workers)
+			worker.join();
+
+		long time = System.currentTimeMillis() - start;
+		factory.done();
+
+		return time;
+	}
+
+	private static BDD queens(Factory factory) {
+		BDD queen = factory.makeOne();
+
+		for (int i = 0; i < N; i++) {
+			BDD e = factory.makeZero();
+			for (int j = 0; j < N; j++)
+				e.orWith(factory.makeVar(i * N + j));
+
+			queen.andWith(e);
+		}
+
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++) {
+				BDD x = factory.makeVar(i * N + j);
+
+				for (int k = 0; k < N; k++)
+					for (int l = 0; l < N; l++)
+						if ((k != i || l != j) && (k == i || l == j || k - i == l - j || k - i == j - l)) {
+							BDD y = factory.makeVar(k * N + l);
+							queen.andWith(x.nand(y));
+							y.free();
+						}
+
+				x.free();
+			}
+
+		return queen;
+	}
+}
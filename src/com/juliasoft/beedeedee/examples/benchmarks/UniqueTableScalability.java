@@ -0,0 +1,136 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.examples.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+import com.juliasoft.beedeedee.factories.Factory;
+import com.juliasoft.beedeedee.factories.UniqueTableKind;
+
+/**
+ * Measures how the creation of nodes scales with the number of threads,
+ * for each implementation of the table of nodes. Each thread builds the
+ * n-queens constraint over its own variables, so that the threads share
+ * the factory but never the nodes, and the table is the only contention point.
+ */
+public class UniqueTableScalability {
+	private static int N = 8;
+	private static int utSize = 1000 * 1000;
+	private static int cacheSize = 100000;
+	private static int maxThreads = Runtime.getRuntime().availableProcessors();
+	private static int rounds = 3;
+
+	public static void main(String[] args) throws InterruptedException {
+		List<UniqueTableKind> kinds = processArgs(args);
+
+		System.out.println("threads\t" + kinds);
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			System.out.print(threads);
+
+			for (UniqueTableKind kind: kinds) {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < rounds; round++)
+					best = Math.min(best, run(kind, threads));
+
+				System.out.print("\t" + best + "ms");
+			}
+
+			System.out.println();
+		}
+	}
+
+	private static List<UniqueTableKind> processArgs(String[] args) {
+		List<UniqueTableKind> kinds = new ArrayList<>();
+
+		for (String arg: args) {
+			if (arg.startsWith("-n"))
+				N = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-u"))
+				utSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-c"))
+				cacheSize = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-t"))
+				maxThreads = Integer.parseInt(arg.substring(2));
+			else if (arg.startsWith("-r"))
+				rounds = Integer.parseInt(arg.substring(2));
+			else
+				kinds.add(UniqueTableKind.valueOf(arg));
+		}
+
+		if (kinds.isEmpty())
+			for (UniqueTableKind kind: UniqueTableKind.values())
+				kinds.add(kind);
+
+		return kinds;
+	}
+
+	private static long run(UniqueTableKind kind, int threads) throws InterruptedException {
+		Factory factory = Factory.mk(utSize, cacheSize, kind);
+		Thread[] workers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++) {
+			int offset = t * N * N;
+			workers[t] = new Thread(() -> queens(factory, offset).free());
+		}
+
+		long start = System.currentTimeMillis();
+
+		for (Thread worker: workers)
+			worker.start();
+
+		for (Thread worker: workers)
+			worker.join();
+
+		long time = System.currentTimeMillis() - start;
+		factory.done();
+
+		return time;
+	}
+
+	private static BDD queens(Factory factory, int offset) {
+		BDD queen = factory.makeOne();
+
+		for (int i = 0; i < N; i++) {
+			BDD e = factory.makeZero();
+			for (int j = 0; j < N; j++)
+				e.orWith(factory.makeVar(offset + i * N + j));
+
+			queen.andWith(e);
+		}
+
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++) {
+				BDD x = factory.makeVar(offset + i * N + j);
+
+				for (int k = 0; k < N; k++)
+					for (int l = 0; l < N; l++)
+						if ((k != i || l != j) && (k == i || l == j || k - i == l - j || k - i == j - l)) {
+							BDD y = factory.makeVar(offset + k * N + l);
+							queen.andWith(x.nand(y));
+							y.free();
+						}
+
+				x.free();
+			}
+
+		return queen;
+	}
+}
@@ -0,0 +1,268 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A unique table whose nodes are kept in segments of a fixed number of nodes
+ * each. The last segment only has room for the nodes that fit in the table,
+ * so that a small table does not allocate a whole segment. A resize appends
+ * new segments and only copies the nodes of the last one, if it was not full.
+ * Since no single array holds all nodes, the table can also grow up to
+ * {@code Integer.MAX_VALUE - 8} nodes, rather than the fifth of it allowed by
+ * {@link SimpleUniqueTable#MAX_SIZE}. Subclasses decide where segments live.
+ *
+ * @param <S> the type of the segments
+ */
+abstract class AbstractSegmentedUniqueTable<S> extends ResizingAndGarbageCollectedUniqueTable {
+
+	/**
+	 * The default number of nodes in a segment is 2^20, that is, 20MB.
+	 */
+
+	protected final static int DEFAULT_SEGMENT_BITS = 20;
+
+	/**
+	 * The largest hash table we allocate. Beyond it, collision chains get longer.
+	 */
+
+	private final static int MAX_HASH_TABLE_SIZE = MAX_SIZE;
+
+	private final static int[] NO_NODES = new int[0];
+
+	private final int segmentBits;
+
+	private final int segmentMask;
+
+	/**
+	 * The segments that hold the nodes. Only the last one can be partially used.
+	 */
+
+	private volatile S[] segments;
+
+	/**
+	 * The segments allocated for the resize in progress, if any.
+	 */
+
+	private S[] newSegments;
+
+	protected AbstractSegmentedUniqueTable(int size, int cacheSize, Factory factory, int segmentBits) {
+		super(size, cacheSize, factory);
+
+		this.segmentBits = segmentBits;
+		this.segmentMask = (1 << segmentBits) - 1;
+
+		// the superclass could not know the size of the segments yet
+		allocateNodes(getSize());
+		installNodes(NO_NODES);
+	}
+
+	/**
+	 * Allocates the given number of segments.
+	 *
+	 * @param count the number of segments
+	 * @return an array of {@code count} segments, all null
+	 */
+
+	protected abstract S[] newSegments(int count);
+
+	/**
+	 * Allocates a segment.
+	 *
+	 * @param ints the number of ints in the segment
+	 * @return the segment
+	 */
+
+	protected abstract S newSegment(int ints);
+
+	/**
+	 * @return the number of ints in the given segment
+	 */
+
+	protected abstract int capacity(S segment);
+
+	/**
+	 * Copies all ints of a segment at the beginning of another, larger segment.
+	 */
+
+	protected abstract void copy(S from, S to);
+
+	/**
+	 * @return the int at the given index of the given segment
+	 */
+
+	protected abstract int read(S segment, int index);
+
+	/**
+	 * Writes an int at the given index of the given segment.
+	 */
+
+	protected abstract void write(S segment, int index, int value);
+
+	@Override
+	protected int maxSize() {
+		return Integer.MAX_VALUE - 8;
+	}
+
+	@Override
+	protected int hashTableSize(int size) {
+		return Math.min(size, MAX_HASH_TABLE_SIZE);
+	}
+
+	@Override
+	protected int hash(int var, int low, int high, int size) {
+		return super.hash(var, low, high, hashTableSize(size));
+	}
+
+	@Override
+	protected int[] allocateNodes(int size) {
+		// called from the constructor of the superclass, before segmentBits is set
+		if (segmentBits == 0)
+			return NO_NODES;
+
+		S[] segments = this.segments;
+		int count = segments == null ? 0 : segments.length;
+		int needed = (int) (((long) size + segmentMask) >>> segmentBits);
+		int nodesInLast = size - ((needed - 1) << segmentBits);
+
+		// a last segment that is not full gets replaced by a larger one
+		int first = count > 0 && capacity(segments[count - 1]) < (segmentMask + 1) * NODE_SIZE ? count - 1 : count;
+		S[] newSegments = segments == null ? newSegments(needed) : Arrays.copyOf(segments, needed);
+		for (int pos = first; pos < needed; pos++)
+			newSegments[pos] = newSegment((pos == needed - 1 ? nodesInLast : segmentMask + 1) * NODE_SIZE);
+
+		this.newSegments = newSegments;
+
+		return NO_NODES;
+	}
+
+	@Override
+	protected void installNodes(int[] newUt) {
+		S[] segments = this.segments, newSegments = this.newSegments;
+		int count = segments == null ? 0 : segments.length;
+
+		// the other segments have not moved, hence readers can see either array
+		if (count > 0 && segments[count - 1] != newSegments[count - 1])
+			copy(segments[count - 1], newSegments[count - 1]);
+
+		this.segments = newSegments;
+		this.newSegments = null;
+	}
+
+	/**
+	 * @return the number of segments currently allocated for the nodes
+	 */
+
+	final int getNumberOfSegments() {
+		return segments.length;
+	}
+
+	final S segmentOf(int id) {
+		return segments[id >>> segmentBits];
+	}
+
+	private int indexOf(int id) {
+		return (id & segmentMask) * NODE_SIZE;
+	}
+
+	@Override
+	protected boolean isVarLowHigh(int id, int var, int low, int high) {
+		S segment = segmentOf(id);
+		int pos = indexOf(id);
+
+		return read(segment, pos + HIGH_OFFSET) == high && read(segment, pos + LOW_OFFSET) == low && read(segment, pos + VAR_OFFSET) == var;
+	}
+
+	@Override
+	public int var(int id) {
+		return read(segmentOf(id), indexOf(id) + VAR_OFFSET);
+	}
+
+	@Override
+	public int low(int id) {
+		return read(segmentOf(id), indexOf(id) + LOW_OFFSET);
+	}
+
+	@Override
+	public int high(int id) {
+		return read(segmentOf(id), indexOf(id) + HIGH_OFFSET);
+	}
+
+	@Override
+	protected int next(int id) {
+		return read(segmentOf(id), indexOf(id) + NEXT_OFFSET);
+	}
+
+	@Override
+	protected int hashCodeAux(int id) {
+		return read(segmentOf(id), indexOf(id) + HASHCODEAUX_OFFSET);
+	}
+
+	@Override
+	protected void invalidate(int node) {
+		write(segmentOf(node), indexOf(node) + VAR_OFFSET, -1);
+	}
+
+	@Override
+	protected void setNext(int node, int nextNode) {
+		write(segmentOf(node), indexOf(node) + NEXT_OFFSET, nextNode);
+	}
+
+	@Override
+	protected void setAt(int where, int varNumber, int lowNode, int highNode) {
+		S segment = segmentOf(where);
+		int pos = indexOf(where);
+
+		write(segment, pos + VAR_OFFSET, varNumber);
+		write(segment, pos + LOW_OFFSET, lowNode);
+		write(segment, pos + HIGH_OFFSET, highNode);
+		write(segment, pos + NEXT_OFFSET, -1);
+		write(segment, pos + HASHCODEAUX_OFFSET, identityOf(where));
+	}
+
+	@Override
+	protected void setVarLowHighHash(int node, int varNumber, int lowNode, int highNode, int hca) {
+		S segment = segmentOf(node);
+		int pos = indexOf(node);
+
+		write(segment, pos + VAR_OFFSET, varNumber);
+		write(segment, pos + LOW_OFFSET, lowNode);
+		write(segment, pos + HIGH_OFFSET, highNode);
+		write(segment, pos + HASHCODEAUX_OFFSET, hca);
+	}
+
+	@Override
+	public String toString() {
+		ReentrantLock lock = getGCLock();
+		lock.lock();
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < nextPos; i++)
+				sb.append(i).append(": \t").append(var(i)).append('\t').append(low(i)).append('\t').append(high(i))
+					.append('\t').append(next(i)).append('\t').append(hashCodeAux(i)).append("\t\n");
+
+			return sb.toString();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+}
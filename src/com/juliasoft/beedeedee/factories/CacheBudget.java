@@ -0,0 +1,161 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+
+/**
+ * A memory budget shared by the operator caches of the factories of a JVM
+ * that register with it. Half of the budget is split evenly among the
+ * factories, the other half in proportion to the hits of their caches
+ * since the previous rebalancing, that is, to the work that their caches
+ * saved. Registered factories are referenced weakly and their caches do
+ * not follow the growth of their node table anymore (see
+ * {@link Factory#setCacheRatio(double)}): their size is decided here.
+ */
+public class CacheBudget {
+
+	/**
+	 * The share of the budget that is split evenly among the factories.
+	 */
+
+	private final static double EVEN_SHARE = 0.5;
+
+	private final long bytes;
+
+	/**
+	 * The total hits of the caches of each factory at the previous rebalancing.
+	 */
+
+	private final Map<Factory, Long> hits = new WeakHashMap<>();
+
+	private Timer timer;
+
+	/**
+	 * Constructs a budget.
+	 *
+	 * @param bytes the number of bytes that the caches of all factories can take
+	 */
+	public CacheBudget(long bytes) {
+		if (bytes <= 0)
+			throw new IllegalArgumentException("non-positive budget " + bytes);
+
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @return the number of bytes that the caches of all factories can take
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Adds a factory to those that share this budget and rebalances the budget.
+	 * This must not be called during an operation of the factory.
+	 *
+	 * @param factory the factory
+	 */
+	public synchronized void register(Factory factory) {
+		if (!hits.containsKey(factory)) {
+			factory.setCacheRatio(0);
+			factory.setCacheStatistics(true);
+			hits.put(factory, totalHits(factory));
+			rebalance();
+		}
+	}
+
+	/**
+	 * Removes a factory from those that share this budget and rebalances the
+	 * budget among the others. The caches of the factory keep their size.
+	 *
+	 * @param factory the factory
+	 */
+	public synchronized void unregister(Factory factory) {
+		if (hits.remove(factory) != null)
+			rebalance();
+	}
+
+	/**
+	 * Recomputes the cache size of each registered factory and resizes its
+	 * caches, that keep their entries as far as they fit.
+	 */
+	public synchronized void rebalance() {
+		int count = hits.size();
+		if (count == 0)
+			return;
+
+		Map<Factory, Long> benefits = new HashMap<>();
+		long totalBenefit = 0;
+		for (Map.Entry<Factory, Long> entry: hits.entrySet()) {
+			long now = totalHits(entry.getKey()), before = entry.getValue();
+			// statistics restart when the node table grows
+			long benefit = now >= before ? now - before : now;
+			benefits.put(entry.getKey(), benefit);
+			totalBenefit += benefit;
+			entry.setValue(now);
+		}
+
+		for (Map.Entry<Factory, Long> entry: benefits.entrySet()) {
+			Factory factory = entry.getKey();
+			double share = EVEN_SHARE / count + (1.0 - EVEN_SHARE) *
+				(totalBenefit > 0 ? (double) entry.getValue() / totalBenefit : 1.0 / count);
+			long cacheSize = (long) (share * bytes / factory.ut.getBytesPerCacheSize());
+			int newCacheSize = (int) Math.max(1, Math.min(cacheSize, Integer.MAX_VALUE >> 2));
+
+			if (newCacheSize != factory.getCacheSize())
+				factory.setCacheSize(newCacheSize);
+		}
+	}
+
+	/**
+	 * Rebalances this budget periodically, in a daemon thread.
+	 *
+	 * @param period the time between rebalancings, in milliseconds, or 0
+	 *               to stop rebalancing periodically
+	 */
+	public synchronized void setRebalancingPeriod(long period) {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+
+		if (period > 0) {
+			timer = new Timer("BeeDeeDee cache budget", true);
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					rebalance();
+				}
+			}, period, period);
+		}
+	}
+
+	private static long totalHits(Factory factory) {
+		long hits = 0;
+		for (OperationCache cache: OperationCache.values())
+			hits += factory.getCacheHits(cache);
+
+		return hits;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * An open-addressed unique table whose nodes only store their variable,
+ * low and high branch, in 3 ints, and nothing else. Nodes carry no identity
+ * that survives garbage collection: the hash code of a BDD is derived from
+ * its structure instead, which is stable since it only depends on the
+ * represented function. It is computed when needed, by visiting the nodes
+ * whose hash code is not in a small memo, that is cleared at each garbage collection.
+ * The hash table is also allowed to be fuller than in the open-addressed table.
+ */
+class CompactUniqueTable extends OpenAddressingUniqueTable {
+
+	protected static final int COMPACT_NODE_SIZE = 3;
+
+	private final static VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * The number of entries of the memo of the hash codes.
+	 */
+
+	private final static int MEMO_SIZE = 1 << 14;
+
+	/**
+	 * The hash codes of some nodes: each entry holds the node plus one in its
+	 * upper half and its hash code in the lower half, 0 if it is empty. Entries
+	 * are read and written as a whole, hence threads never see half of one.
+	 */
+
+	private final long[] memo = new long[MEMO_SIZE];
+
+	CompactUniqueTable(int size, int cacheSize, Factory factory) {
+		super(size, cacheSize, factory);
+	}
+
+	@Override
+	protected int getNodeSize() {
+		return COMPACT_NODE_SIZE;
+	}
+
+	@Override
+	protected int hashTableSize(int size) {
+		// the smallest power of two that keeps the load factor within 0.75
+		int slots = Integer.highestOneBit(Math.max(1, size + size / 3 - 1)) << 1;
+		return slots <= 0 || slots > super.hashTableSize(size) ? super.hashTableSize(size) : slots;
+	}
+
+	@Override
+	protected boolean storesHashCodes() {
+		return false;
+	}
+
+	@Override
+	protected int hashCodeAux(int id) {
+		int var = var(id);
+		if (var >= Integer.MAX_VALUE - 1) // terminal node
+			return var;
+
+		int pos = id & (MEMO_SIZE - 1);
+		long entry = (long) LONGS.getOpaque(memo, pos);
+		if ((int) (entry >>> 32) == id + 1)
+			return (int) entry;
+
+		int hash = mix(var, edgeHash(low(id)), edgeHash(high(id)));
+		LONGS.setOpaque(memo, pos, (long) (id + 1) << 32 | (hash & 0xffffffffL));
+
+		return hash;
+	}
+
+	private int edgeHash(int edge) {
+		int node = nodeOf(edge), hash = hashCodeAux(node);
+
+		// only complement edges differ from the position of their node
+		return node != edge && (edge & 1) != 0 ? ~hash : hash;
+	}
+
+	@Override
+	int compactTable(boolean[] aliveNodes) {
+		int collected = super.compactTable(aliveNodes);
+
+		// nodes have moved
+		Arrays.fill(memo, 0L);
+
+		return collected;
+	}
+
+	@Override
+	protected void setAt(int where, int varNumber, int lowNode, int highNode) {
+		int pos = where * COMPACT_NODE_SIZE;
+		int[] table = ut;
+
+		table[pos++] = varNumber;
+		table[pos++] = lowNode;
+		table[pos] = highNode;
+	}
+
+	@Override
+	protected void moveNode(int from, int to, int lowNode, int highNode) {
+		setAt(to, var(from), lowNode, highNode);
+	}
+
+	@Override
+	protected void setVarLowHighHash(int node, int varNumber, int lowNode, int highNode, int hca) {
+		setAt(node, varNumber, lowNode, highNode);
+	}
+}
@@ -18,40 +18,12 @@
 */
 package com.juliasoft.beedeedee.factories;
 
+import java.util.function.IntUnaryOperator;
+
 /**
  * The cache for APPLY computations.
  */
-class ComputationCache {
-	private final static int ENTRY_SIZE = 4;
-	private final int[] cache;
-	private final int size;
-
-	/**
-	 * Constructs a ComputationCache of the given size.
-	 * 
-	 * @param size the size of the cache
-	 */
-	ComputationCache(int size) {
-		this.size = size;
-		int arraySize = size * ENTRY_SIZE;
-		this.cache = new int[arraySize];
-		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
-			cache[i] = -1;
-
-		for (int pos = 0; pos < locks.length; pos++)
-			locks[pos] = new Object();
-	}
-
-	/**
-	 * Clears all the entries in this cache.
-	 */
-	void clear() {
-		int arraySize = size * ENTRY_SIZE;
-		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
-			cache[i] = -1;
-	}
-
-	private final Object[] locks = new Object[1000];
+abstract class ComputationCache {
 
 	/**
 	 * Gets an entry from this cache.
@@ -61,7 +33,7 @@ class ComputationCache {
 	 * @param bdd2 the second operand bdd index
 	 * @return the index of the result, or -1 if not found
 	 */
-	int get(Operator op, int bdd1, int bdd2) {
+	final int get(Operator op, int bdd1, int bdd2) {
 		if (op != Operator.IMP)
 			// we ensure that symmetrical operations are kept in a normal form
 			if (bdd1 > bdd2) {
@@ -70,16 +42,7 @@ class ComputationCache {
 				bdd2 = temp;
 			}
 
-		int ordinal = op.ordinal();
-		int pos = hash(ordinal, bdd1, bdd2), pos1 = pos + 1, pos2 = pos + 2;
-		int[] cache = this.cache;
-
-		if (cache[pos1] == bdd1 && cache[pos2] == bdd2 && cache[pos] == ordinal)
-			synchronized (locks[pos % locks.length]) {
-				return (cache[pos1] == bdd1 && cache[pos2] == bdd2 && cache[pos] == ordinal) ? cache[pos + 3] : -1;
-			}
-
-		return -1;
+		return lookup(op.ordinal(), bdd1, bdd2);
 	}
 
 	/**
@@ -90,7 +53,7 @@ class ComputationCache {
 	 * @param bdd2 the second operand bdd index
 	 * @param result the computation result
 	 */
-	void put(Operator op, int bdd1, int bdd2, int result) {
+	final void put(Operator op, int bdd1, int bdd2, int result) {
 		if (op != Operator.IMP)
 			// we ensure that symmetrical operations are kept in a normal form
 			if (bdd1 > bdd2) {
@@ -99,29 +62,58 @@ class ComputationCache {
 				bdd2 = temp;
 			}
 
-		int ordinal = op.ordinal();
-		int pos = hash(ordinal, bdd1, bdd2), pos1 = pos + 1, pos2 = pos + 2;
-		int[] cache = this.cache;
-
-		if (cache[pos1] != bdd1 || cache[pos2] != bdd2 || cache[pos] != ordinal)
-			synchronized (locks[pos % locks.length]) {
-				cache[pos] = ordinal;
-				cache[pos1] = bdd1;
-				cache[pos2] = bdd2;
-				cache[pos + 3] = result;
-			}
+		store(op.ordinal(), bdd1, bdd2, result);
 	}
 
+	/**
+	 * Gets an entry whose operands are already in normal form.
+	 * 
+	 * @param ordinal the ordinal of the operator
+	 * @param bdd1 the first operand bdd index
+	 * @param bdd2 the second operand bdd index
+	 * @return the index of the result, or -1 if not found
+	 */
+	protected abstract int lookup(int ordinal, int bdd1, int bdd2);
+
+	/**
+	 * Puts an entry whose operands are already in normal form.
+	 * 
+	 * @param ordinal the ordinal of the operator
+	 * @param bdd1 the first operand bdd index
+	 * @param bdd2 the second operand bdd index
+	 * @param result the computation result
+	 */
+	protected abstract void store(int ordinal, int bdd1, int bdd2, int result);
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	abstract void copyTo(ComputationCache other, int from, int to);
+
+	/**
+	 * Clears all the entries in this cache.
+	 */
+	abstract void clear();
+
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped. Since compaction
+	 * keeps the relative order of the nodes, the operands stay in normal form.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	abstract void remap(IntUnaryOperator relocation);
+
 	/**
 	 * Returns the size of this cache.
 	 * 
 	 * @return the size
 	 */
-	int getSize() {
-		return size;
-	}
-
-	private int hash(int op, int bdd1, int bdd2) {
-		return ENTRY_SIZE * (Math.abs(op ^ bdd1 ^ (bdd2 << 2)) % size);
-	}
-}
\ No newline at end of file
+	abstract int getSize();
+}
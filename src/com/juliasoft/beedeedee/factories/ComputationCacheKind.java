@@ -0,0 +1,71 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+/**
+ * The implementations of the cache of APPLY computations that a
+ * {@link Factory} can use.
+ */
+public enum ComputationCacheKind {
+
+	/**
+	 * Entries guarded by striped locks. This is the default.
+	 */
+
+	SYNCHRONIZED {
+		@Override
+		ComputationCache mk(int size) {
+			return new SynchronizedComputationCache(size);
+		}
+	},
+
+	/**
+	 * Entries validated by a sequence number, without any lock. A write
+	 * that races with another write to the same entry is lost.
+	 */
+
+	VERSIONED {
+		@Override
+		ComputationCache mk(int size) {
+			return new VersionedComputationCache(size);
+		}
+	},
+
+	/**
+	 * Entries grouped into sets of four, guarded by striped locks. Entries
+	 * that map into the same set do not evict each other, and the least
+	 * recently used one is evicted first.
+	 */
+
+	SET_ASSOCIATIVE {
+		@Override
+		ComputationCache mk(int size) {
+			return new SetAssociativeComputationCache(size);
+		}
+	};
+
+	/**
+	 * Creates a cache of this kind.
+	 *
+	 * @param size the number of entries
+	 * @return the cache
+	 */
+
+	abstract ComputationCache mk(int size);
+}
@@ -0,0 +1,93 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of the sets of variables quantified so far. Each distinct set
+ * is identified by a small integer, its cube, so that caches can compare
+ * cubes rather than sets. Cubes are never released: programs typically
+ * quantify over a few sets, many times.
+ */
+class CubeRegistry {
+
+	/**
+	 * The cube of each set registered so far.
+	 */
+
+	private final ConcurrentHashMap<BitSet, Integer> cubes = new ConcurrentHashMap<>();
+
+	/**
+	 * The set of each cube, indexed by cube.
+	 */
+
+	private volatile BitSet[] sets = new BitSet[16];
+
+	private int size;
+
+	/**
+	 * Yields the cube of the given set of variables, registering the set if needed.
+	 *
+	 * @param vars the set of variables. It can be modified later, since the
+	 *             registry keeps a copy
+	 * @return the cube
+	 */
+	int intern(BitSet vars) {
+		Integer cube = cubes.get(vars);
+		if (cube != null)
+			return cube;
+
+		synchronized (this) {
+			cube = cubes.get(vars);
+			if (cube == null) {
+				BitSet copy = (BitSet) vars.clone();
+				BitSet[] sets = this.sets;
+				if (size == sets.length)
+					sets = Arrays.copyOf(sets, size * 2);
+
+				sets[size] = copy;
+				// the set must be visible before its cube
+				this.sets = sets;
+				cubes.put(copy, cube = size++);
+			}
+
+			return cube;
+		}
+	}
+
+	/**
+	 * Yields the set of variables of a cube. It must not be modified.
+	 *
+	 * @param cube the cube
+	 * @return the set of variables
+	 */
+	BitSet get(int cube) {
+		return sets[cube];
+	}
+
+	/**
+	 * @return the number of cubes registered so far
+	 */
+	int size() {
+		return cubes.size();
+	}
+}
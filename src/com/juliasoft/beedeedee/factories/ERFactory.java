@@ -51,6 +51,43 @@ public class ERFactory extends Factory {
 		}
 	}
 
+	@Override
+	public BDD andAll(Collection<BDD> bdds) {
+		return applyAll(new ArrayList<>(bdds), true);
+	}
+
+	@Override
+	public BDD orAll(Collection<BDD> bdds) {
+		return applyAll(new ArrayList<>(bdds), false);
+	}
+
+	/**
+	 * Combines the BDDs in blocks, as in {@link Factory#andAll(Collection)}, but
+	 * sequentially. Equivalence classes must be merged at each step, hence this
+	 * goes through the operations of BDDER.
+	 */
+
+	private BDD applyAll(List<BDD> bdds, boolean and) {
+		BDD result = and ? makeOne() : makeZero();
+
+		for (int from = 0; from < bdds.size(); from += APPLY_ALL_BLOCK) {
+			BDD block = applyAll(bdds, from, Math.min(bdds.size(), from + APPLY_ALL_BLOCK), and);
+			result = and ? result.andWith(block) : result.orWith(block);
+		}
+
+		return result;
+	}
+
+	private BDD applyAll(List<BDD> bdds, int from, int to, boolean and) {
+		if (to - from == 1)
+			return bdds.get(from).copy();
+
+		int middle = (from + to) >>> 1;
+		BDD left = applyAll(bdds, from, middle, and), right = applyAll(bdds, middle, to, and);
+
+		return and ? left.andWith(right) : left.orWith(right);
+	}
+
 	@Override
 	public int nodeCount(Collection<BDD> bdds) {
 		throw new RuntimeException("Not yet implemented"); //TODO
@@ -199,6 +236,7 @@ public class ERFactory extends Factory {
 				return EquivResult.emptyEquivResult;
 
 			EquivResult result = equivCache.get(bdd);
+			ut.recordLookup(OperationCache.EQUIV, result != null);
 			if (result != null)
 				return result;
 
@@ -445,6 +483,7 @@ public class ERFactory extends Factory {
 					return bdd;
 
 				int cached = cache.get(bdd, l);
+				ut.recordLookup(OperationCache.SQUEEZE_EQUIV, cached >= 0);
 				if (cached >= 0)
 					return cached;
 
@@ -821,7 +860,7 @@ public class ERFactory extends Factory {
 			if (l.containsVar(var)) {
 				Map<Integer, Integer> renaming = new HashMap<>();
 				renaming.put(var, l.nextLeader(var));
-				int exist = innerReplace(id, renaming, renaming.hashCode()); // requires normalized representation
+				int exist = innerReplace(id, compileRenaming(renaming)); // requires normalized representation
 				return new BDDER(exist, l.removeVar(var), true);
 			}
 			else
@@ -849,18 +888,18 @@ public class ERFactory extends Factory {
 			int exist;
 
 			if (!renaming.isEmpty()) {
-				exist = innerReplace(id, renaming, renaming.hashCode());  // requires normalized representation
+				exist = innerReplace(id, compileRenaming(renaming));  // requires normalized representation
 
 				if (quantifiedVars.isEmpty())
 					// no need to normalize in this case
 					return new BDDER(exist, lNew, false);
 				else
-					exist = innerQuantify(exist, quantifiedVars, true, quantifiedVars.hashCode());
+					exist = innerQuantify(exist, quantifiedVars, true, cubes.intern(quantifiedVars));
 			}
 			else if (quantifiedVars.isEmpty())
 				return new BDDER(id, l, false);
 			else
-				exist = innerQuantify(id, quantifiedVars, true, quantifiedVars.hashCode());
+				exist = innerQuantify(id, quantifiedVars, true, cubes.intern(quantifiedVars));
 
 			return new BDDER(exist, lNew, true);
 		}
@@ -893,7 +932,7 @@ public class ERFactory extends Factory {
 					throw new ReplacementWithExistingVarException(v);
 
 			try (GCLock lock = new GCLock()) {
-				int nNew = innerReplace(id, renaming, renaming.hashCode());
+				int nNew = innerReplace(id, compileRenaming(renaming));
 
 				// perform "simultaneous" substitution
 				renaming = new HashMap<>(renaming);
@@ -919,7 +958,7 @@ public class ERFactory extends Factory {
 			eNew = eNew.replace(renaming);
 
 			try (GCLock lock = new GCLock()) {
-				int nNew = innerReplace(id, renaming, renaming.hashCode());
+				int nNew = innerReplace(id, compileRenaming(renaming));
 
 				setId(renameWithLeader(nNew, eNew));
 				l = eNew;
@@ -929,6 +968,17 @@ public class ERFactory extends Factory {
 			return this;
 		}
 
+		@Override
+		public BDD replace(Renaming renaming) {
+			// the equivalence classes are renamed through the map
+			return replace(renaming.asMap());
+		}
+
+		@Override
+		public BDD replaceWith(Renaming renaming) {
+			return replaceWith(renaming.asMap());
+		}
+
 		/**
 		 * Separates renamings affecting variables on the right side of some renaming.
 		 * The original renaming map is modified.
@@ -955,6 +1005,7 @@ public class ERFactory extends Factory {
 			RenameWithLeaderCache cache = ut.getRWLCache();
 			equivalenceRelations = equivalenceRelations.filter(new UsefulLeaders(id));
 			int result = cache.get(id, equivalenceRelations);
+			ut.recordLookup(OperationCache.RENAME_WITH_LEADER, result >= 0);
 			if (result >= 0)
 				return result;
 			else
@@ -973,7 +1024,36 @@ public class ERFactory extends Factory {
 
 		@Override
 		public BDD relProd(BDD other, BDD var) {
-			throw new UnsupportedOperationException();
+			BitSet vars = var.vars();
+
+			// the equivalence classes of the conjunction decide which
+			// variables get renamed rather than quantified
+			try (GCLock lock = new GCLock()) {
+				return and((BDDER) other, false).exist_(vars);
+			}
+		}
+
+		@Override
+		BDD applyQuantified(BDD other, Operator op, Quantifier quantifier, BDD vars) {
+			if (quantifier != Quantifier.EXIST)
+				throw new UnsupportedOperationException();
+
+			if (op == Operator.AND)
+				return relProd(other, vars);
+
+			BDD applied;
+			switch (op) {
+			case OR: applied = or(other); break;
+			case IMP: applied = imp(other); break;
+			case BIIMP: applied = biimp(other); break;
+			case XOR: applied = xor(other); break;
+			default: throw new IllegalArgumentException("unknown operator " + op);
+			}
+
+			BDD result = applied.exist(vars);
+			applied.free();
+
+			return result;
 		}
 
 		@Override
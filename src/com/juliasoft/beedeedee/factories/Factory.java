@@ -20,16 +20,23 @@ package com.juliasoft.beedeedee.factories;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import com.juliasoft.beedeedee.bdd.Assignment;
 import com.juliasoft.beedeedee.bdd.BDD;
@@ -67,6 +74,52 @@ public class Factory {
 		return new Factory(utSize, cacheSize, numberOfPreallocatedVars);
 	}
 
+	/**
+	 * Constructs a factory with automatic resizing and garbage collection,
+	 * that keeps its nodes in the given kind of table.
+	 * 
+	 * @param utSize the initial size of the node table
+	 * @param cacheSize the size of the caches
+	 * @param kind the implementation of the node table
+	 * @return an instance of the factory
+	 */
+	public static Factory mk(int utSize, int cacheSize, UniqueTableKind kind) {
+		return new Factory(utSize, cacheSize, DEFAULT_NUMBER_OF_PREALLOCATED_VARS, kind);
+	}
+
+	/**
+	 * Constructs a factory with automatic resizing and garbage collection,
+	 * that keeps its nodes in the given kind of table and, if required,
+	 * references them through complement edges. With complement edges,
+	 * negation takes constant time and a BDD shares its nodes with its negation.
+	 * 
+	 * @param utSize the initial size of the node table
+	 * @param cacheSize the size of the caches
+	 * @param kind the implementation of the node table
+	 * @param complementEdges true if and only if complement edges must be used
+	 * @return an instance of the factory
+	 */
+	public static Factory mk(int utSize, int cacheSize, UniqueTableKind kind, boolean complementEdges) {
+		return new Factory(utSize, cacheSize, DEFAULT_NUMBER_OF_PREALLOCATED_VARS, kind, complementEdges);
+	}
+
+	/**
+	 * Constructs a factory with automatic resizing and garbage collection,
+	 * that keeps its nodes in the given kind of table, references them
+	 * through complement edges if required and caches the results of
+	 * APPLY in the given kind of cache.
+	 * 
+	 * @param utSize the initial size of the node table
+	 * @param cacheSize the size of the caches
+	 * @param kind the implementation of the node table
+	 * @param complementEdges true if and only if complement edges must be used
+	 * @param cacheKind the implementation of the cache of APPLY computations
+	 * @return an instance of the factory
+	 */
+	public static Factory mk(int utSize, int cacheSize, UniqueTableKind kind, boolean complementEdges, ComputationCacheKind cacheKind) {
+		return new Factory(utSize, cacheSize, DEFAULT_NUMBER_OF_PREALLOCATED_VARS, kind, complementEdges, cacheKind);
+	}
+
 	/**
 	 * Constructs a factory with automatic resizing and garbage collection, and
 	 * using the ER representation, that separates information on equivalent
@@ -127,7 +180,9 @@ public class Factory {
 		 * @param num the progressive number of the resize operation
 		 * @param oldSize the old size of the table
 		 * @param newSize the new size of the table
-		 * @param time the time required for the resize
+		 * @param time the time required for the resize, during which no node could be created.
+		 *             It does not include the migration of the hash table that some tables
+		 *             perform after the resize, concurrently with the other operations
 		 * @param totalTime the cumulative resize time up to now
 		 */
 
@@ -137,6 +192,15 @@ public class Factory {
 	protected final static int FIRST_NODE_NUM = 2;
 	protected final int NUMBER_OF_PREALLOCATED_VARS;
 	protected final static int DEFAULT_NUMBER_OF_PREALLOCATED_VARS = 1000;
+
+	/**
+	 * The number of consecutive operands of {@link #andAll(Collection)} and
+	 * {@link #orAll(Collection)} that are combined along a balanced tree.
+	 * Larger blocks lose the pruning of the operands that come first.
+	 */
+
+	protected final static int APPLY_ALL_BLOCK = 64;
+
 	protected final int NUMBER_OF_PREALLOCATED_NODES;
 	protected ResizingAndGarbageCollectedUniqueTable ut;
 	private final ArrayList<BDDImpl> allBDDsCreatedSoFar = new ArrayList<BDDImpl>();
@@ -146,6 +210,77 @@ public class Factory {
 	protected final int[] notVars;
 	private int maxVar;
 
+	/**
+	 * The number of variables below which APPLY results are not cached.
+	 */
+
+	private volatile int cacheAdmissionHeight;
+
+	/**
+	 * The number of topmost levels of and, or, xor, nand, biimp and imp that
+	 * run in parallel.
+	 */
+
+	private volatile int parallelApplyDepth;
+
+	/**
+	 * The cubes of the sets of variables quantified so far.
+	 */
+
+	protected final CubeRegistry cubes = new CubeRegistry();
+
+	/**
+	 * The cube of the variables of the BDDs used as set of quantified
+	 * variables, by index of the BDD. It is cleared by garbage collection.
+	 */
+
+	private final ConcurrentHashMap<Integer, Integer> cubesOfBDDs = new ConcurrentHashMap<>();
+
+	/**
+	 * The renamings made so far through {@link #makeRenaming(Map)}, so that
+	 * equal maps yield the same renaming.
+	 */
+
+	private final ConcurrentHashMap<Map<Integer, Integer>, Renaming> renamings = new ConcurrentHashMap<>();
+
+	/**
+	 * The maximal number of renamings that are remembered after being compiled
+	 * implicitly from a map.
+	 */
+
+	private final static int MAX_RECENT_RENAMINGS = 64;
+
+	/**
+	 * The renamings most recently compiled implicitly from a map, in access
+	 * order. They are forgotten after a while, since callers can build a new
+	 * map for each operation.
+	 */
+
+	@SuppressWarnings("serial")
+	private final Map<Map<Integer, Integer>, Renaming> recentRenamings = new LinkedHashMap<Map<Integer, Integer>, Renaming>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Map<Integer, Integer>, Renaming> eldest) {
+			return size() > MAX_RECENT_RENAMINGS;
+		}
+	};
+
+	/**
+	 * The identifier of the next renaming. Identifiers are never reused, so
+	 * that the replace cache never confuses a forgotten renaming with a new one.
+	 */
+
+	private final AtomicInteger nextRenamingId = new AtomicInteger();
+
+	/**
+	 * True if BDDs are referenced through complement edges: the least
+	 * significant bit of an id means negation, the other bits are the
+	 * position of the node, whose high branch is never negated.
+	 * Then ONE is the negation of ZERO, the only terminal node.
+	 */
+
+	private final boolean complementEdges;
+
 	protected class GCLock implements Closeable {
 		private final ReentrantLock lock;
 	
@@ -165,28 +300,62 @@ public class Factory {
 	}
 
 	Factory(int utSize, int cacheSize, int numberOfPreallocatedVars) {
+		this(utSize, cacheSize, numberOfPreallocatedVars, UniqueTableKind.CHAINED);
+	}
+
+	Factory(int utSize, int cacheSize, int numberOfPreallocatedVars, UniqueTableKind kind) {
+		this(utSize, cacheSize, numberOfPreallocatedVars, kind, false);
+	}
+
+	Factory(int utSize, int cacheSize, int numberOfPreallocatedVars, UniqueTableKind kind, boolean complementEdges) {
+		this(utSize, cacheSize, numberOfPreallocatedVars, kind, complementEdges, ComputationCacheKind.SYNCHRONIZED);
+	}
+
+	Factory(int utSize, int cacheSize, int numberOfPreallocatedVars, UniqueTableKind kind, boolean complementEdges, ComputationCacheKind cacheKind) {
+		this.complementEdges = complementEdges;
 		NUMBER_OF_PREALLOCATED_VARS = numberOfPreallocatedVars;
 		NUMBER_OF_PREALLOCATED_NODES = FIRST_NODE_NUM + 2 * NUMBER_OF_PREALLOCATED_VARS;
 		vars = new int[NUMBER_OF_PREALLOCATED_VARS];
 		notVars = new int[NUMBER_OF_PREALLOCATED_VARS];
 
 		utSize = Math.max(utSize, NUMBER_OF_PREALLOCATED_NODES);
-		setUT(new ResizingAndGarbageCollectedUniqueTable(utSize, cacheSize, this));
+		ResizingAndGarbageCollectedUniqueTable uniqueTable = kind.mk(utSize, cacheSize, this);
+		uniqueTable.setComputationCacheKind(cacheKind);
+		setUT(uniqueTable);
 	}
 
 	protected void setUT(ResizingAndGarbageCollectedUniqueTable uniqueTable) {
 		ut = uniqueTable;
-		// insert 0 and 1
-		ZERO = ut.get(Integer.MAX_VALUE - 1, -1, -1);
-		ONE = ut.get(Integer.MAX_VALUE, -1, -1);
 
-		// insert lower variables
-		for (int var = 0; var < NUMBER_OF_PREALLOCATED_VARS; var++)
-			vars[var] = ut.get(var, ZERO, ONE);
+		if (complementEdges) {
+			ut.setComplementEdges();
+			// insert 0, whose negation is 1
+			ZERO = ut.get(Integer.MAX_VALUE - 1, -1, -1) << 1;
+			ONE = ZERO ^ 1;
+		}
+		else {
+			// insert 0 and 1
+			ZERO = ut.get(Integer.MAX_VALUE - 1, -1, -1);
+			ONE = ut.get(Integer.MAX_VALUE, -1, -1);
+		}
+
+		// insert lower variables, all at once
+		int[] numbers = new int[NUMBER_OF_PREALLOCATED_VARS];
+		int[] zeros = new int[NUMBER_OF_PREALLOCATED_VARS], ones = new int[NUMBER_OF_PREALLOCATED_VARS];
+		for (int var = 0; var < NUMBER_OF_PREALLOCATED_VARS; var++) {
+			numbers[var] = var;
+			zeros[var] = ZERO;
+			ones[var] = ONE;
+		}
+
+		MKAll(numbers, zeros, ones, vars);
 
 		// and their negation
-		for (int var = 0; var < NUMBER_OF_PREALLOCATED_VARS; var++)
-			notVars[var] = ut.get(var, ONE, ZERO);
+		if (complementEdges)
+			for (int var = 0; var < NUMBER_OF_PREALLOCATED_VARS; var++)
+				notVars[var] = vars[var] ^ 1;
+		else
+			ut.getAll(numbers, ones, zeros, notVars);
 	}
 
 	/**
@@ -195,7 +364,77 @@ public class Factory {
 	public void done() {}
 
 	protected final int MK(int var, int low, int high) {
-		return low == high ? low : ut.get(var, low, high);
+		if (low == high)
+			return low;
+		else if (!complementEdges)
+			return ut.get(var, low, high);
+		else if ((high & 1) == 0)
+			return ut.get(var, low, high) << 1;
+		else
+			// the high branch of a node is never negated: we negate the node instead
+			return ut.get(var, low ^ 1, high ^ 1) << 1 | 1;
+	}
+
+	/**
+	 * Computes {@link #MK(int, int, int)} for many triples at once. The
+	 * nodes that must be looked up in the unique table are looked up together,
+	 * so that the table can overlap their memory accesses. This is useful to
+	 * build a whole level of nodes at a time.
+	 *
+	 * @param vars the variable numbers
+	 * @param lows the low branches
+	 * @param highs the high branches
+	 * @param out the array, distinct from the others, where the results are stored
+	 */
+
+	protected final void MKAll(int[] vars, int[] lows, int[] highs, int[] out) {
+		int length = vars.length, count = 0;
+		int[] positions = new int[length], batchVars = new int[length], batchLows = new int[length], batchHighs = new int[length];
+
+		for (int i = 0; i < length; i++) {
+			int low = lows[i], high = highs[i];
+
+			if (low == high)
+				out[i] = low;
+			else {
+				// the high branch of a node is never negated: we negate the node instead
+				int negation = complementEdges ? high & 1 : 0;
+				positions[count] = i;
+				batchVars[count] = vars[i];
+				batchLows[count] = low ^ negation;
+				batchHighs[count++] = high ^ negation;
+			}
+		}
+
+		if (count < length) {
+			batchVars = Arrays.copyOf(batchVars, count);
+			batchLows = Arrays.copyOf(batchLows, count);
+			batchHighs = Arrays.copyOf(batchHighs, count);
+		}
+
+		int[] nodes = new int[count];
+		ut.getAll(batchVars, batchLows, batchHighs, nodes);
+
+		for (int j = 0; j < count; j++) {
+			int i = positions[j];
+			out[i] = complementEdges ? nodes[j] << 1 | (highs[i] & 1) : nodes[j];
+		}
+	}
+
+	/*
+	 * Node accessors that take complement edges into account
+	 */
+
+	protected final int varOf(int id) {
+		return complementEdges ? ut.var(id >>> 1) : ut.var(id);
+	}
+
+	protected final int lowOf(int id) {
+		return complementEdges ? ut.low(id >>> 1) ^ (id & 1) : ut.low(id);
+	}
+
+	protected final int highOf(int id) {
+		return complementEdges ? ut.high(id >>> 1) ^ (id & 1) : ut.high(id);
 	}
 
 	private void updateMaxVar(int var) {
@@ -214,8 +453,8 @@ public class Factory {
 	 */
 
 	private int MKInOrder(int var, int low, int high) {
-		int varLow = ut.var(low);
-		int varHigh = ut.var(high);
+		int varLow = varOf(low);
+		int varHigh = varOf(high);
 
 		if (var == varLow || var == varHigh)
 			throw new ReplacementWithExistingVarException(var);
@@ -224,14 +463,14 @@ public class Factory {
 			return MK(var, low, high);
 
 		if (varLow == varHigh)
-			return MK(varLow, MKInOrder(var, ut.low(low), ut.low(high)), MKInOrder(var, ut.high(low), ut.high(high)));
+			return MK(varLow, MKInOrder(var, lowOf(low), lowOf(high)), MKInOrder(var, highOf(low), highOf(high)));
 		if (varLow < varHigh)
-			return MK(varLow, MKInOrder(var, ut.low(low), high), MKInOrder(var, ut.high(low), high));
+			return MK(varLow, MKInOrder(var, lowOf(low), high), MKInOrder(var, highOf(low), high));
 		/*
 		 * since var cannot appear in low and high
 		 * we have: varHigh < varLow &&  varHigh < var) 
 		 */
-		return MK(varHigh, MKInOrder(var, low, ut.low(high)), MKInOrder(var, low, ut.high(high)));
+		return MK(varHigh, MKInOrder(var, low, lowOf(high)), MKInOrder(var, low, highOf(high)));
 	}
 
 	/**
@@ -243,6 +482,16 @@ public class Factory {
 		}
 	}
 
+	/**
+	 * @param var the variable number
+	 * @return the current number of nodes in the factory labeled with the given variable
+	 */
+	public int nodesAtLevel(int var) {
+		try (GCLock lock = new GCLock()) {
+			return ut.nodesAtLevel(var);
+		}
+	}
+
 	public void printStatistics() {
 		try (GCLock lock = new GCLock()) {
 			ut.printStatistics();
@@ -291,6 +540,152 @@ public class Factory {
 		}
 	}
 
+	/**
+	 * Compiles a renaming of variables, to be applied to many BDDs of this
+	 * factory through {@link BDD#replace(Renaming)}. Equal maps yield the same
+	 * renaming, which is kept as long as this factory.
+	 *
+	 * @param renaming a map from the old var number to the new one. It can
+	 *                 be modified later, since the renaming keeps a copy
+	 * @return the renaming
+	 */
+	public Renaming makeRenaming(Map<Integer, Integer> renaming) {
+		Renaming result = renamings.get(renaming);
+		if (result != null)
+			return result;
+
+		synchronized (renamings) {
+			result = renamings.get(renaming);
+			if (result == null) {
+				result = new Renaming(this, nextRenamingId.getAndIncrement(), renaming);
+				renamings.put(result.asMap(), result);
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Compiles a renaming of variables for the operations that receive a map.
+	 * It is not kept as long as this factory, unlike those made by
+	 * {@link #makeRenaming(Map)}: only the most recent ones are remembered.
+	 *
+	 * @param renaming a map from the old var number to the new one
+	 * @return the renaming
+	 */
+	Renaming compileRenaming(Map<Integer, Integer> renaming) {
+		Renaming result = renamings.get(renaming);
+		if (result != null)
+			return result;
+
+		synchronized (recentRenamings) {
+			result = recentRenamings.get(renaming);
+			if (result == null) {
+				result = new Renaming(this, nextRenamingId.getAndIncrement(), renaming);
+				recentRenamings.put(result.asMap(), result);
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Constructs the conjunction of many BDDs. Consecutive BDDs are grouped
+	 * into blocks, that are conjoined along a balanced tree, in parallel.
+	 * The blocks are then conjoined in order. This avoids most intermediate
+	 * results of conjoining the BDDs one after the other, without losing the
+	 * pruning that the first BDDs exert on the later ones. Garbage collection
+	 * can run between blocks and between the steps of the latter phase, but
+	 * not inside a block, and blocks are built at the same time: hence the
+	 * table might grow larger than with a chain of {@code andWith}, in exchange
+	 * for speed.
+	 *
+	 * @param bdds the BDDs, that are not freed
+	 * @return the conjunction of the BDDs, that is one if there are none
+	 */
+	public BDD andAll(Collection<BDD> bdds) {
+		return applyAll(bdds, Operator.AND, ONE, ZERO);
+	}
+
+	/**
+	 * Constructs the disjunction of many BDDs, in the same way as
+	 * {@link #andAll(Collection)}.
+	 *
+	 * @param bdds the BDDs, that are not freed
+	 * @return the disjunction of the BDDs, that is zero if there are none
+	 */
+	public BDD orAll(Collection<BDD> bdds) {
+		return applyAll(bdds, Operator.OR, ZERO, ONE);
+	}
+
+	private BDD applyAll(Collection<BDD> bdds, Operator op, int neutral, int absorbing) {
+		List<BDDImpl> operands = new ArrayList<>();
+
+		try (GCLock lock = new GCLock()) {
+			for (BDD bdd: bdds) {
+				int id = ((BDDImpl) bdd).id;
+				if (id == absorbing)
+					return new BDDImpl(absorbing);
+				else if (id != neutral)
+					operands.add((BDDImpl) bdd);
+			}
+
+			if (operands.isEmpty())
+				return new BDDImpl(neutral);
+		}
+
+		// each block and each step of the fold takes its own lock, so that
+		// garbage collection can run in between and reclaim intermediate results
+		BDDImpl[] blocks = new BDDImpl[(operands.size() + APPLY_ALL_BLOCK - 1) / APPLY_ALL_BLOCK];
+		IntConsumer block = b -> {
+			List<BDDImpl> inBlock = operands.subList(b * APPLY_ALL_BLOCK, Math.min(operands.size(), (b + 1) * APPLY_ALL_BLOCK));
+			ut.gcIfAlmostFull();
+
+			try (GCLock lock = new GCLock()) {
+				// ids must be read under the lock, since garbage collection moves nodes
+				blocks[b] = new BDDImpl(innerApplyAll(op, inBlock.stream().mapToInt(bdd -> bdd.id).toArray(), 0, inBlock.size()));
+			}
+
+			// the intermediate results of the block are garbage now
+			ut.scheduleGC();
+		};
+
+		if (blocks.length > 1) {
+			try {
+				pool.submit(() -> IntStream.range(0, blocks.length).parallel().forEach(block)).get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		else
+			block.accept(0);
+
+		BDDImpl result = blocks[0];
+		for (int b = 1; b < blocks.length; b++) {
+			if (result.id != absorbing) {
+				ut.gcIfAlmostFull();
+
+				try (GCLock lock = new GCLock()) {
+					result.setId(innerApply(op, result.id, blocks[b].id));
+				}
+			}
+
+			blocks[b].free();
+		}
+
+		return result;
+	}
+
+	private int innerApplyAll(Operator op, int[] ids, int from, int to) {
+		if (to - from == 1)
+			return ids[from];
+
+		int middle = (from + to) >>> 1;
+
+		return innerApply(op, innerApplyAll(op, ids, from, middle), innerApplyAll(op, ids, middle, to));
+	}
+
 	protected final int innerMakeVar(int v) {
 		updateMaxVar(v);
 
@@ -317,7 +712,7 @@ public class Factory {
 		if (bdd1 == bdd2)
 			return bdd1;
 	
-		if (bdd1 == ZERO || bdd2 == ZERO)
+		if (bdd1 == ZERO || bdd2 == ZERO || (complementEdges && (bdd1 ^ bdd2) == 1))
 			return ZERO;
 	
 		if (bdd1 == ONE)
@@ -326,23 +721,30 @@ public class Factory {
 		if (bdd2 == ONE)
 			return bdd1;
 	
+		boolean cached = isCacheable(bdd1, bdd2);
 		int result;
-		if ((result = ut.getFromCache(Operator.AND, bdd1, bdd2)) < 0) {
-			int v1 = ut.var(bdd1), v2 = ut.var(bdd2);
+		if (!cached || (result = ut.getFromCache(Operator.AND, bdd1, bdd2)) < 0) {
+			int v1 = varOf(bdd1), v2 = varOf(bdd2);
 	
 			if (v1 == v2)
-				ut.putIntoCache(Operator.AND, bdd1, bdd2,
-						result = MK(v1, innerAnd(ut.low(bdd1), ut.low(bdd2)), innerAnd(ut.high(bdd1), ut.high(bdd2))));
+				result = MK(v1, innerAnd(lowOf(bdd1), lowOf(bdd2)), innerAnd(highOf(bdd1), highOf(bdd2)));
 			else if (v1 < v2)
-				ut.putIntoCache(Operator.AND, bdd1, bdd2, result = MK(v1, innerAnd(ut.low(bdd1), bdd2), innerAnd(ut.high(bdd1), bdd2)));
+				result = MK(v1, innerAnd(lowOf(bdd1), bdd2), innerAnd(highOf(bdd1), bdd2));
 			else
-				ut.putIntoCache(Operator.AND, bdd1, bdd2, result = MK(v2, innerAnd(bdd1, ut.low(bdd2)), innerAnd(bdd1, ut.high(bdd2))));
+				result = MK(v2, innerAnd(bdd1, lowOf(bdd2)), innerAnd(bdd1, highOf(bdd2)));
+
+			if (cached)
+				ut.putIntoCache(Operator.AND, bdd1, bdd2, result);
 		}
 	
 		return result;
 	}
 
 	protected final int innerOr(int bdd1, int bdd2) {
+		if (complementEdges)
+			// f | g = !(!f & !g), that shares the cache of conjunction
+			return innerAnd(bdd1 ^ 1, bdd2 ^ 1) ^ 1;
+
 		if (bdd1 == bdd2)
 			return bdd1;
 	
@@ -355,23 +757,30 @@ public class Factory {
 		if (bdd2 == ZERO)
 			return bdd1;
 	
+		boolean cached = isCacheable(bdd1, bdd2);
 		int result;
-		if ((result = ut.getFromCache(Operator.OR, bdd1, bdd2)) < 0) {
-			int v1 = ut.var(bdd1), v2 = ut.var(bdd2);
+		if (!cached || (result = ut.getFromCache(Operator.OR, bdd1, bdd2)) < 0) {
+			int v1 = varOf(bdd1), v2 = varOf(bdd2);
 	
 			if (v1 == v2)
-				ut.putIntoCache(Operator.OR, bdd1, bdd2,
-						result = MK(v1, innerOr(ut.low(bdd1), ut.low(bdd2)), innerOr(ut.high(bdd1), ut.high(bdd2))));
+				result = MK(v1, innerOr(lowOf(bdd1), lowOf(bdd2)), innerOr(highOf(bdd1), highOf(bdd2)));
 			else if (v1 < v2)
-				ut.putIntoCache(Operator.OR, bdd1, bdd2, result = MK(v1, innerOr(ut.low(bdd1), bdd2), innerOr(ut.high(bdd1), bdd2)));
+				result = MK(v1, innerOr(lowOf(bdd1), bdd2), innerOr(highOf(bdd1), bdd2));
 			else
-				ut.putIntoCache(Operator.OR, bdd1, bdd2, result = MK(v2, innerOr(bdd1, ut.low(bdd2)), innerOr(bdd1, ut.high(bdd2))));
+				result = MK(v2, innerOr(bdd1, lowOf(bdd2)), innerOr(bdd1, highOf(bdd2)));
+
+			if (cached)
+				ut.putIntoCache(Operator.OR, bdd1, bdd2, result);
 		}
 	
 		return result;
 	}
 
 	protected final int innerBiimp(int bdd1, int bdd2) {
+		if (complementEdges)
+			// f <-> g = !(f ^ g), that shares the cache of exclusive or
+			return innerXor(bdd1, bdd2) ^ 1;
+
 		if (bdd1 == bdd2)
 			return ONE;
 	
@@ -387,17 +796,20 @@ public class Factory {
 		if (bdd2 == ONE)
 			return bdd1;
 	
+		boolean cached = isCacheable(bdd1, bdd2);
 		int result;
-		if ((result = ut.getFromCache(Operator.BIIMP, bdd1, bdd2)) < 0) {
-			int v1 = ut.var(bdd1), v2 = ut.var(bdd2);
+		if (!cached || (result = ut.getFromCache(Operator.BIIMP, bdd1, bdd2)) < 0) {
+			int v1 = varOf(bdd1), v2 = varOf(bdd2);
 	
 			if (v1 == v2)
-				ut.putIntoCache(Operator.BIIMP, bdd1, bdd2,
-						result = MK(v1, innerBiimp(ut.low(bdd1), ut.low(bdd2)), innerBiimp(ut.high(bdd1), ut.high(bdd2))));
+				result = MK(v1, innerBiimp(lowOf(bdd1), lowOf(bdd2)), innerBiimp(highOf(bdd1), highOf(bdd2)));
 			else if (v1 < v2)
-				ut.putIntoCache(Operator.BIIMP, bdd1, bdd2, result = MK(v1, innerBiimp(ut.low(bdd1), bdd2), innerBiimp(ut.high(bdd1), bdd2)));
+				result = MK(v1, innerBiimp(lowOf(bdd1), bdd2), innerBiimp(highOf(bdd1), bdd2));
 			else
-				ut.putIntoCache(Operator.BIIMP, bdd1, bdd2, result = MK(v2, innerBiimp(bdd1, ut.low(bdd2)), innerBiimp(bdd1, ut.high(bdd2))));
+				result = MK(v2, innerBiimp(bdd1, lowOf(bdd2)), innerBiimp(bdd1, highOf(bdd2)));
+
+			if (cached)
+				ut.putIntoCache(Operator.BIIMP, bdd1, bdd2, result);
 		}
 	
 		return result;
@@ -408,28 +820,50 @@ public class Factory {
 	 */
 	
 	protected final int innerImp(int bdd1, int bdd2) {
+		if (complementEdges)
+			// f -> g = !(f & !g), that shares the cache of conjunction
+			return innerAnd(bdd1, bdd2 ^ 1) ^ 1;
+
 		if (bdd1 == bdd2 || bdd1 == ZERO)
 			return ONE;
 		else if (bdd1 == ONE)
 			return bdd2;
 	
+		boolean cached = isCacheable(bdd1, bdd2);
 		int result;
-		if ((result = ut.getFromCache(Operator.IMP, bdd1, bdd2)) < 0) {
-			int v1 = ut.var(bdd1), v2 = ut.var(bdd2);
+		if (!cached || (result = ut.getFromCache(Operator.IMP, bdd1, bdd2)) < 0) {
+			int v1 = varOf(bdd1), v2 = varOf(bdd2);
 	
 			if (v1 == v2)
-				ut.putIntoCache(Operator.IMP, bdd1, bdd2,
-						result = MK(v1, innerImp(ut.low(bdd1), ut.low(bdd2)), innerImp(ut.high(bdd1), ut.high(bdd2))));
+				result = MK(v1, innerImp(lowOf(bdd1), lowOf(bdd2)), innerImp(highOf(bdd1), highOf(bdd2)));
 			else if (v1 < v2)
-				ut.putIntoCache(Operator.IMP, bdd1, bdd2, result = MK(v1, innerImp(ut.low(bdd1), bdd2), innerImp(ut.high(bdd1), bdd2)));
+				result = MK(v1, innerImp(lowOf(bdd1), bdd2), innerImp(highOf(bdd1), bdd2));
 			else
-				ut.putIntoCache(Operator.IMP, bdd1, bdd2, result = MK(v2, innerImp(bdd1, ut.low(bdd2)), innerImp(bdd1, ut.high(bdd2))));
+				result = MK(v2, innerImp(bdd1, lowOf(bdd2)), innerImp(bdd1, highOf(bdd2)));
+
+			if (cached)
+				ut.putIntoCache(Operator.IMP, bdd1, bdd2, result);
 		}
 	
 		return result;
 	}
 
 	protected final int innerXor(int bdd1, int bdd2) {
+		if (complementEdges) {
+			// !f ^ g = f ^ !g = !(f ^ g): only regular edges reach the cache
+			int parity = (bdd1 ^ bdd2) & 1;
+			bdd1 &= ~1;
+			bdd2 &= ~1;
+			if (bdd1 == bdd2)
+				return ZERO ^ parity;
+			else if (bdd1 == ZERO)
+				return bdd2 ^ parity;
+			else if (bdd2 == ZERO)
+				return bdd1 ^ parity;
+			else
+				return innerXorOfRegular(bdd1, bdd2) ^ parity;
+		}
+
 		if (bdd1 == bdd2 || (bdd1 == ONE && bdd2 == ONE) || (bdd1 == ZERO && bdd2 == ZERO))
 			return ZERO;
 	
@@ -442,74 +876,173 @@ public class Factory {
 		if (bdd2 == ZERO)
 			return bdd1;
 	
+		return innerXorOfRegular(bdd1, bdd2);
+	}
+
+	private int innerXorOfRegular(int bdd1, int bdd2) {
+		boolean cached = isCacheable(bdd1, bdd2);
 		int result;
-		if ((result = ut.getFromCache(Operator.XOR, bdd1, bdd2)) < 0) {
-			int v1 = ut.var(bdd1), v2 = ut.var(bdd2);
+		if (!cached || (result = ut.getFromCache(Operator.XOR, bdd1, bdd2)) < 0) {
+			int v1 = varOf(bdd1), v2 = varOf(bdd2);
 	
 			if (v1 == v2)
-				ut.putIntoCache(Operator.XOR, bdd1, bdd2,
-						result = MK(v1, innerXor(ut.low(bdd1), ut.low(bdd2)), innerXor(ut.high(bdd1), ut.high(bdd2))));
+				result = MK(v1, innerXor(lowOf(bdd1), lowOf(bdd2)), innerXor(highOf(bdd1), highOf(bdd2)));
 			else if (v1 < v2)
-				ut.putIntoCache(Operator.XOR, bdd1, bdd2, result = MK(v1, innerXor(ut.low(bdd1), bdd2), innerXor(ut.high(bdd1), bdd2)));
+				result = MK(v1, innerXor(lowOf(bdd1), bdd2), innerXor(highOf(bdd1), bdd2));
 			else
-				ut.putIntoCache(Operator.XOR, bdd1, bdd2, result = MK(v2, innerXor(bdd1, ut.low(bdd2)), innerXor(bdd1, ut.high(bdd2))));
+				result = MK(v2, innerXor(bdd1, lowOf(bdd2)), innerXor(bdd1, highOf(bdd2)));
+
+			if (cached)
+				ut.putIntoCache(Operator.XOR, bdd1, bdd2, result);
 		}
 	
 		return result;
 	}
 
+	/**
+	 * Applies an operator to two BDDs, in parallel if allowed by
+	 * {@link #setParallelApplyDepth(int)}.
+	 */
+
+	private int apply(Operator op, int bdd1, int bdd2) {
+		int depth = parallelApplyDepth;
+		if (depth == 0)
+			return innerApply(op, bdd1, bdd2);
+		else
+			return pool.invoke(new ParallelApply(op, bdd1, bdd2, depth));
+	}
+
+	/**
+	 * The topmost levels of a parallel application of an operator. Each
+	 * level forks the computation of the low branch and computes the high
+	 * branch itself. Below the given depth, the computation is sequential and
+	 * uses the cache. The caller holds a {@link GCLock}, hence no garbage
+	 * collection can run in the meantime.
+	 */
+
+	@SuppressWarnings("serial")
+	private class ParallelApply extends RecursiveTask<Integer> {
+		private final Operator op;
+		private final int bdd1;
+		private final int bdd2;
+		private final int depth;
+
+		private ParallelApply(Operator op, int bdd1, int bdd2, int depth) {
+			this.op = op;
+			this.bdd1 = bdd1;
+			this.bdd2 = bdd2;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (depth == 0 || bdd1 < FIRST_NODE_NUM || bdd2 < FIRST_NODE_NUM)
+				return innerApply(op, bdd1, bdd2);
+
+			int v1 = varOf(bdd1), v2 = varOf(bdd2), var = Math.min(v1, v2);
+			int low1 = bdd1, high1 = bdd1, low2 = bdd2, high2 = bdd2;
+			if (v1 == var) {
+				low1 = lowOf(bdd1);
+				high1 = highOf(bdd1);
+			}
+
+			if (v2 == var) {
+				low2 = lowOf(bdd2);
+				high2 = highOf(bdd2);
+			}
+
+			ParallelApply low = new ParallelApply(op, low1, low2, depth - 1);
+			low.fork();
+			int high = new ParallelApply(op, high1, high2, depth - 1).compute();
+
+			return MK(var, low.join(), high);
+		}
+	}
+
+	/**
+	 * Determines if the APPLY of two operands is looked up and stored in the
+	 * cache, according to {@link #setCacheAdmissionHeight(int)}.
+	 */
+
+	private boolean isCacheable(int bdd1, int bdd2) {
+		int height = cacheAdmissionHeight;
+		if (height == 0 || maxVar - Math.min(varOf(bdd1), varOf(bdd2)) >= height)
+			return true;
+
+		ut.recordSkippedLookup();
+		return false;
+	}
+
 	protected final int innerNot(int id) {
-		return innerImp(id, ZERO);
+		return complementEdges ? id ^ 1 : innerImp(id, ZERO);
 	}
 
 	protected final int innerRestrict(int id, int var, boolean value) {
 		int result;
 		result = ut.getRestrictCache().get(id, var, value);
+		ut.recordLookup(OperationCache.RESTRICT, result >= 0);
 		if (result >= 0)
 			return result;
 	
-		int diff = ut.var(id) - var;
+		int diff = varOf(id) - var;
 		if (diff > 0)
 			return id;
 		else if (diff < 0) {
-			result = MK(ut.var(id), innerRestrict(ut.low(id), var, value), innerRestrict(ut.high(id), var, value));
+			result = MK(varOf(id), innerRestrict(lowOf(id), var, value), innerRestrict(highOf(id), var, value));
 			ut.getRestrictCache().put(id, var, value, result);
 			return result;
 		}
 		else if (value)
-			return innerRestrict(ut.high(id), var, value);
+			return innerRestrict(highOf(id), var, value);
 		else
-			return innerRestrict(ut.low(id), var, value);
+			return innerRestrict(lowOf(id), var, value);
 	}
 
 	protected final int innerCompose(int id1, int id2, int var) {
 		int result = ut.getComposeCache().get(id1, id2, var);
+		ut.recordLookup(OperationCache.COMPOSE, result >= 0);
 		if (result >= 0)
 			return result;
 
-		int v1 = ut.var(id1);
+		int v1 = varOf(id1);
 
 		if (v1 > var)
 			return id1;
 
 		if (v1 < var) {
-			int v2 = ut.var(id2);
+			int v2 = varOf(id2);
 			if (v1 == v2)
-				result = MK(v1, innerCompose(ut.low(id1), ut.low(id2), var), innerCompose(ut.high(id1), ut.high(id2), var));
+				result = MK(v1, innerCompose(lowOf(id1), lowOf(id2), var), innerCompose(highOf(id1), highOf(id2), var));
 			else if (v1 < v2)
-				result = MK(v1, innerCompose(ut.low(id1), id2, var), innerCompose(ut.high(id1), id2, var));
+				result = MK(v1, innerCompose(lowOf(id1), id2, var), innerCompose(highOf(id1), id2, var));
 			else
-				result = MK(v2, innerCompose(id1, ut.low(id2), var), innerCompose(id1, ut.high(id2), var));
+				result = MK(v2, innerCompose(id1, lowOf(id2), var), innerCompose(id1, highOf(id2), var));
 		}
 		else
-			result = ite(id2, ut.high(id1), ut.low(id1));
+			result = ite(id2, highOf(id1), lowOf(id1));
 
 		ut.getComposeCache().put(id1, id2, var, result);
 
 		return result;
 	}
 
+	/**
+	 * If-then-else. Its arguments are first rewritten into a standard triple,
+	 * as in Brace, Rudell and Bryant, so that equivalent calls share their
+	 * entry in the cache.
+	 */
+
 	private int ite(int f, int g, int h) {
+		if (g == f)
+			g = ONE;
+		else if (h == f)
+			h = ZERO;
+		else if (complementEdges)
+			if (g == (f ^ 1))
+				g = ZERO;
+			else if (h == (f ^ 1))
+				h = ONE;
+
 		if (f == ONE)
 			return g;
 		if (f == ZERO)
@@ -519,95 +1052,307 @@ public class Factory {
 		if (g == ONE && h == ZERO)
 			return f;
 		if (g == ZERO && h == ONE)
-			return innerImp(f, ZERO);
+			return innerNot(f);
+
+		// the condition is the operand that comes first
+		int swap;
+		if (g == ONE) {
+			if (precedes(h, f)) {
+				swap = f; f = h; h = swap;
+			}
+		}
+		else if (h == ZERO) {
+			if (precedes(g, f)) {
+				swap = f; f = g; g = swap;
+			}
+		}
+		else if (complementEdges)
+			if (g == ZERO) {
+				if (precedes(h, f)) {
+					swap = f; f = h ^ 1; h = swap ^ 1;
+				}
+			}
+			else if (h == ONE) {
+				if (precedes(g, f)) {
+					swap = f; f = g ^ 1; g = swap ^ 1;
+				}
+			}
+			else if (g == (h ^ 1) && precedes(g, f)) {
+				swap = f; f = g; g = swap; h = swap ^ 1;
+			}
+
+		// with complement edges, the condition and the then branch are regular
+		int negation = 0;
+		if (complementEdges) {
+			if ((f & 1) != 0) {
+				f ^= 1;
+				swap = g; g = h; h = swap;
+			}
+
+			if ((g & 1) != 0) {
+				negation = 1;
+				g ^= 1;
+				h ^= 1;
+			}
+		}
+
+		int result = ut.getIteCache().get(f, g, h);
+		ut.recordLookup(OperationCache.ITE, result >= 0);
+		if (result < 0) {
+			result = iteUncached(f, g, h);
+			ut.getIteCache().put(f, g, h, result);
+		}
+
+		return result ^ negation;
+	}
 
-		int vf = ut.var(f);
-		int vg = ut.var(g);
-		int vh = ut.var(h);
+	/**
+	 * @return true if the top variable of {@code a} comes before that of {@code b},
+	 *         or they have the same top variable and {@code a} has a smaller index
+	 */
+
+	private boolean precedes(int a, int b) {
+		int va = varOf(a), vb = varOf(b);
+		return va < vb || (va == vb && a < b);
+	}
+
+	private int iteUncached(int f, int g, int h) {
+		int vf = varOf(f);
+		int vg = varOf(g);
+		int vh = varOf(h);
 
 		if (vf == vg)
 			if (vf == vh)
-				return MK(vf, ite(ut.low(f), ut.low(g), ut.low(h)), ite(ut.high(f), ut.high(g), ut.high(h)));
+				return MK(vf, ite(lowOf(f), lowOf(g), lowOf(h)), ite(highOf(f), highOf(g), highOf(h)));
 			else if (vf < vh)
-				return MK(vf, ite(ut.low(f), ut.low(g), h), ite(ut.high(f), ut.high(g), h));
+				return MK(vf, ite(lowOf(f), lowOf(g), h), ite(highOf(f), highOf(g), h));
 			else
-				return MK(vh, ite(f, g, ut.low(h)), ite(f, g, ut.high(h)));
+				return MK(vh, ite(f, g, lowOf(h)), ite(f, g, highOf(h)));
 		else if (vf < vg)
 			if (vf == vh)
-				return MK(vf, ite(ut.low(f), g, ut.low(h)), ite(ut.high(f), g, ut.high(h)));
+				return MK(vf, ite(lowOf(f), g, lowOf(h)), ite(highOf(f), g, highOf(h)));
 			else if (vf < vh)
-				return MK(vf, ite(ut.low(f), g, h), ite(ut.high(f), g, h));
+				return MK(vf, ite(lowOf(f), g, h), ite(highOf(f), g, h));
 			else
-				return MK(vh, ite(f, g, ut.low(h)), ite(f, g, ut.high(h)));
+				return MK(vh, ite(f, g, lowOf(h)), ite(f, g, highOf(h)));
 		else
 			if (vg == vh)
-				return MK(vg, ite(f, ut.low(g), ut.low(h)), ite(f, ut.high(g), ut.high(h)));
+				return MK(vg, ite(f, lowOf(g), lowOf(h)), ite(f, highOf(g), highOf(h)));
 			else if (vg < vh)
-				return MK(vg, ite(f, ut.low(g), h), ite(f, ut.high(g), h));
+				return MK(vg, ite(f, lowOf(g), h), ite(f, highOf(g), h));
 			else
-				return MK(vh, ite(f, g, ut.low(h)), ite(f, g, ut.high(h)));
+				return MK(vh, ite(f, g, lowOf(h)), ite(f, g, highOf(h)));
 	}
 
 	protected final int innerExist(int id, int var) {
-		return innerOr(innerRestrict(id, var, false), innerRestrict(id, var, true));
+		return innerQuantify(id, var, true);
+	}
+
+	/**
+	 * Quantifies a single variable, through the cube of that variable only.
+	 */
+
+	protected final int innerQuantify(int id, int var, boolean exist) {
+		BitSet vars = new BitSet();
+		vars.set(var);
+
+		return innerQuantify(id, vars, exist, cubes.intern(vars));
 	}
 
-	protected final int innerReplace(int bdd, Map<Integer, Integer> renaming, int hashOfRenaming) {
+	protected final int innerReplace(int bdd, Renaming renaming) {
 		if (bdd < FIRST_NODE_NUM) // terminal node
 			return bdd;
 	
-		int result = ut.getReplaceCache().get(bdd, renaming, hashOfRenaming);
+		int result = ut.getReplaceCache().get(bdd, renaming.id);
+		ut.recordLookup(OperationCache.REPLACE, result >= 0);
 		if (result >= 0)
 			return result;
 	
-		int oldLow = ut.low(bdd), oldHigh = ut.high(bdd);
-		int lowRenamed = innerReplace(oldLow, renaming, hashOfRenaming);
-		int highRenamed = innerReplace(oldHigh, renaming, hashOfRenaming);
-		int var = ut.var(bdd);
-		Integer newVar = renaming.get(var);
-		if (newVar == null)
-			newVar = var;
+		int oldLow = lowOf(bdd), oldHigh = highOf(bdd);
+		int lowRenamed = innerReplace(oldLow, renaming);
+		int highRenamed = innerReplace(oldHigh, renaming);
+		int var = varOf(bdd);
+		int newVar = renaming.newVarOf(var);
 	
 		if (var == newVar && lowRenamed == oldLow && highRenamed == oldHigh)
 			result = bdd;
 		else
 			result = MKInOrder(newVar, lowRenamed, highRenamed);
 	
-		ut.getReplaceCache().put(bdd, renaming, result, hashOfRenaming);
+		ut.getReplaceCache().put(bdd, renaming.id, result);
 	
 		return result;
 	}
 
-	protected final int innerQuantify(int id, BitSet vars, boolean exist, int hashCodeOfVars) {
-		if (id < FIRST_NODE_NUM) // terminal node
+	protected final int innerQuantify(int id, BitSet vars, boolean exist, int cube) {
+		int var;
+		if (id < FIRST_NODE_NUM || (var = varOf(id)) >= vars.length())
+			// no quantified variable from here down
 			return id;
 	
-		int result = ut.getQuantCache().get(exist, id, vars, hashCodeOfVars);
+		int result = ut.getQuantCache().get(exist, id, cube);
+		ut.recordLookup(OperationCache.QUANT, result >= 0);
 		if (result >= 0)
 			return result;
 	
-		int oldA = ut.low(id), oldB = ut.high(id);
-		int a = innerQuantify(oldA, vars, exist, hashCodeOfVars);
-		int b = innerQuantify(oldB, vars, exist, hashCodeOfVars);
-	
-		int var = ut.var(id);
+		int oldA = lowOf(id), oldB = highOf(id);
+		int a = innerQuantify(oldA, vars, exist, cube);
 	
 		if (vars.get(var))
 			if (exist)
-				result = innerOr(a, b);
+				// the high branch cannot change the disjunction if the low one is true
+				result = a == ONE ? ONE : innerOr(a, innerQuantify(oldB, vars, exist, cube));
 			else
-				result = innerAnd(a, b);
-		else
+				// the high branch cannot change the conjunction if the low one is false
+				result = a == ZERO ? ZERO : innerAnd(a, innerQuantify(oldB, vars, exist, cube));
+		else {
+			int b = innerQuantify(oldB, vars, exist, cube);
+	
 			if (a == oldA && b == oldB)
 				result = id;
 			else
 				result = MK(var, a, b);
+		}
 	
-		ut.getQuantCache().put(exist, id, vars, hashCodeOfVars, result);
+		ut.getQuantCache().put(exist, id, cube, result);
 	
 		return result;
 	}
 
+	/**
+	 * Computes the existential quantification of the conjunction of two BDDs
+	 * in a single pass, without building the conjunction: the quantified
+	 * variables are disjoined on the way back from the recursion.
+	 */
+
+	protected final int innerRelProd(int bdd1, int bdd2, BitSet vars, int cube) {
+		if (bdd1 == ZERO || bdd2 == ZERO || (complementEdges && (bdd1 ^ bdd2) == 1))
+			return ZERO;
+
+		if (bdd1 == bdd2 || bdd2 == ONE)
+			return innerQuantify(bdd1, vars, true, cube);
+
+		if (bdd1 == ONE)
+			return innerQuantify(bdd2, vars, true, cube);
+
+		// the operation is symmetrical: we keep the operands in a normal form
+		if (bdd1 > bdd2) {
+			int temp = bdd1;
+			bdd1 = bdd2;
+			bdd2 = temp;
+		}
+
+		int v1 = varOf(bdd1), v2 = varOf(bdd2), var = Math.min(v1, v2);
+		if (vars.nextSetBit(var) < 0)
+			// nothing to quantify from here down
+			return innerAnd(bdd1, bdd2);
+
+		int result = ut.getRelProdCache().get(bdd1, bdd2, cube);
+		ut.recordLookup(OperationCache.RELPROD, result >= 0);
+		if (result >= 0)
+			return result;
+
+		int low1 = bdd1, high1 = bdd1, low2 = bdd2, high2 = bdd2;
+		if (v1 == var) {
+			low1 = lowOf(bdd1);
+			high1 = highOf(bdd1);
+		}
+
+		if (v2 == var) {
+			low2 = lowOf(bdd2);
+			high2 = highOf(bdd2);
+		}
+
+		int low = innerRelProd(low1, low2, vars, cube);
+
+		if (!vars.get(var))
+			result = MK(var, low, innerRelProd(high1, high2, vars, cube));
+		else if (low == ONE)
+			// the high branch cannot change the disjunction
+			result = ONE;
+		else
+			result = innerOr(low, innerRelProd(high1, high2, vars, cube));
+
+		ut.getRelProdCache().put(bdd1, bdd2, cube, result);
+
+		return result;
+	}
+
+	protected final int innerApply(Operator op, int bdd1, int bdd2) {
+		switch (op) {
+		case AND: return innerAnd(bdd1, bdd2);
+		case OR: return innerOr(bdd1, bdd2);
+		case IMP: return innerImp(bdd1, bdd2);
+		case BIIMP: return innerBiimp(bdd1, bdd2);
+		case XOR: return innerXor(bdd1, bdd2);
+		default: throw new IllegalArgumentException("unknown operator " + op);
+		}
+	}
+
+	/**
+	 * Applies an operator to two BDDs and quantifies the result in a single
+	 * pass, without building the intermediate BDD. Unique quantification is
+	 * the exclusive or of the two cofactors.
+	 */
+
+	protected final int innerApplyQuantified(Operator op, Quantifier quantifier, int bdd1, int bdd2, BitSet vars, int cube) {
+		return innerApplyQuantified(op, quantifier, bdd1, bdd2, vars, cube, 0);
+	}
+
+	/**
+	 * Applies an operator to two BDDs that do not test any variable before
+	 * {@code from}, and quantifies the result.
+	 */
+
+	private int innerApplyQuantified(Operator op, Quantifier quantifier, int bdd1, int bdd2, BitSet vars, int cube, int from) {
+		int v1 = varOf(bdd1), v2 = varOf(bdd2), var = Math.min(v1, v2);
+
+		if (quantifier == Quantifier.UNIQUE) {
+			int skipped = vars.nextSetBit(from);
+			if (skipped >= 0 && skipped < var)
+				// the cofactors over a variable that is not tested are equal, and cancel out
+				return ZERO;
+		}
+
+		if (var >= vars.length())
+			// nothing to quantify from here down
+			return innerApply(op, bdd1, bdd2);
+
+		QuantifiedApplyCache cache = ut.getQuantifiedApplyCache();
+		int result = cache.get(op, quantifier, bdd1, bdd2, cube);
+		ut.recordLookup(OperationCache.QUANTIFIED_APPLY, result >= 0);
+		if (result >= 0)
+			return result;
+
+		int low1 = bdd1, high1 = bdd1, low2 = bdd2, high2 = bdd2;
+		if (v1 == var) {
+			low1 = lowOf(bdd1);
+			high1 = highOf(bdd1);
+		}
+
+		if (v2 == var) {
+			low2 = lowOf(bdd2);
+			high2 = highOf(bdd2);
+		}
+
+		int low = innerApplyQuantified(op, quantifier, low1, low2, vars, cube, var + 1);
+
+		if (!vars.get(var))
+			result = MK(var, low, innerApplyQuantified(op, quantifier, high1, high2, vars, cube, var + 1));
+		else if (quantifier == Quantifier.EXIST)
+			// the high branch cannot change the disjunction if the low one is true
+			result = low == ONE ? ONE : innerOr(low, innerApplyQuantified(op, quantifier, high1, high2, vars, cube, var + 1));
+		else if (quantifier == Quantifier.FORALL)
+			// the high branch cannot change the conjunction if the low one is false
+			result = low == ZERO ? ZERO : innerAnd(low, innerApplyQuantified(op, quantifier, high1, high2, vars, cube, var + 1));
+		else
+			result = innerXor(low, innerApplyQuantified(op, quantifier, high1, high2, vars, cube, var + 1));
+
+		cache.put(op, quantifier, bdd1, bdd2, cube, result);
+
+		return result;
+	}
+
 	private int freedBDDsCounter;
 
 	public class BDDImpl implements BDD {
@@ -619,7 +1364,8 @@ public class Factory {
 		protected int id;
 
 		/**
-		 * A unique identifier of the node where this BDD starts.
+		 * A unique identifier of the node where this BDD starts, if the
+		 * table stores one in its nodes.
 		 */
 
 		private int hashCode;
@@ -640,7 +1386,10 @@ public class Factory {
 
 		protected final void setId(int id) {
 			this.id = id;
-			this.hashCode = ut.hashCodeAux(id);
+			// otherwise it is computed at each request, since ids change at garbage collection
+			if (ut.storesHashCodes())
+				this.hashCode = hashCodeOf(id);
+
 			this.nodeCount = -1;
 		}
 
@@ -696,15 +1445,15 @@ public class Factory {
 
 			boolean terminal = false;
 
-			int var = ut.var(currentId);
+			int var = varOf(currentId);
 			if (currentId < 2) {
 				var = currentId == 0 ? 0 : 1;
 
 				terminal = true;
 			}
 
-			int low = ut.low(currentId);
-			int high = ut.high(currentId);
+			int low = lowOf(currentId);
+			int high = highOf(currentId);
 
 			s += currentId + " [label=" + var + (terminal ? ",shape=box]\n" : "]\n");
 			if (terminal) {
@@ -725,14 +1474,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerOr(id, ((BDDImpl) other).id));
+				return new BDDImpl(apply(Operator.OR, id, ((BDDImpl) other).id));
 			}
 		}
 
 		@Override
 		public BDD orWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerOr(id, ((BDDImpl) other).id));
+				setId(apply(Operator.OR, id, ((BDDImpl) other).id));
 			}
 
 			other.free();
@@ -745,14 +1494,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerAnd(id, ((BDDImpl) other).id));
+				return new BDDImpl(apply(Operator.AND, id, ((BDDImpl) other).id));
 			}
 		}
 
 		@Override
 		public BDD andWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerAnd(id, ((BDDImpl) other).id));
+				setId(apply(Operator.AND, id, ((BDDImpl) other).id));
 			}
 
 			other.free();
@@ -765,14 +1514,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerXor(id, ((BDDImpl) other).id));
+				return new BDDImpl(apply(Operator.XOR, id, ((BDDImpl) other).id));
 			}
 		}
 
 		@Override
 		public BDD xorWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerXor(id, ((BDDImpl) other).id));
+				setId(apply(Operator.XOR, id, ((BDDImpl) other).id));
 			}
 
 			other.free();
@@ -785,14 +1534,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerImp(innerAnd(id, ((BDDImpl) other).id), ZERO));
+				return new BDDImpl(innerNot(apply(Operator.AND, id, ((BDDImpl) other).id)));
 			}
 		}
 
 		@Override
 		public BDD nandWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerImp(innerAnd(id, ((BDDImpl) other).id), ZERO));
+				setId(innerNot(apply(Operator.AND, id, ((BDDImpl) other).id)));
 			}
 
 			other.free();
@@ -823,14 +1572,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerImp(id, ((BDDImpl) other).id));
+				return new BDDImpl(apply(Operator.IMP, id, ((BDDImpl) other).id));
 			}
 		}
 
 		@Override
 		public BDD impWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerImp(id, ((BDDImpl) other).id));
+				setId(apply(Operator.IMP, id, ((BDDImpl) other).id));
 			}
 
 			other.free();
@@ -843,14 +1592,14 @@ public class Factory {
 			ut.gcIfAlmostFull();
 
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerBiimp(id, ((BDDImpl) other).id));
+				return new BDDImpl(apply(Operator.BIIMP, id, ((BDDImpl) other).id));
 			}
 		}
 
 		@Override
 		public BDD biimpWith(BDD other) {
 			try (GCLock lock = new GCLock()) {
-				setId(innerBiimp(id, ((BDDImpl) other).id));
+				setId(apply(Operator.BIIMP, id, ((BDDImpl) other).id));
 			}
 
 			other.free();
@@ -882,13 +1631,13 @@ public class Factory {
 			if (bdd == ZERO)
 				throw new UnsatException();
 			else if (bdd != ONE) {
-				if (ut.low(bdd) == ZERO) {
-					assignment.put(ut.var(bdd), true);
-					anySat(ut.high(bdd), assignment);
+				if (lowOf(bdd) == ZERO) {
+					assignment.put(varOf(bdd), true);
+					anySat(highOf(bdd), assignment);
 				}
 				else {
-					assignment.put(ut.var(bdd), false);
-					anySat(ut.low(bdd), assignment);
+					assignment.put(varOf(bdd), false);
+					anySat(lowOf(bdd), assignment);
 				}
 			}
 		}
@@ -907,13 +1656,13 @@ public class Factory {
 				if (bdd == ONE)
 					list.add(new AssignmentImpl());
 				else {
-					int var = ut.var(bdd);
+					int var = varOf(bdd);
 
-					List<Assignment> lowList = allSat(ut.low(bdd));
+					List<Assignment> lowList = allSat(lowOf(bdd));
 					for (Assignment assignment: lowList)
 						((AssignmentImpl) assignment).put(var, false);
 
-					List<Assignment> highList = allSat(ut.high(bdd));
+					List<Assignment> highList = allSat(highOf(bdd));
 					for (Assignment assignment: highList)
 						((AssignmentImpl) assignment).put(var, true);
 
@@ -935,7 +1684,7 @@ public class Factory {
 		@Override
 		public long satCount(int maxVar) {
 			try (GCLock lock = new GCLock()) {
-				return (long) (Math.pow(2, ut.var(id)) * count(id, maxVar));
+				return (long) (Math.pow(2, varOf(id)) * count(id, maxVar));
 			}
 		}
 
@@ -943,11 +1692,11 @@ public class Factory {
 			if (bdd < FIRST_NODE_NUM) // terminal node
 				return bdd;
 
-			int low = ut.low(bdd);
-			int high = ut.high(bdd);
-			int varLow = low < FIRST_NODE_NUM ? maxVar + 1 : ut.var(low);
-			int varHigh = high < FIRST_NODE_NUM ? maxVar + 1 : ut.var(high);
-			return Math.pow(2, varLow - ut.var(bdd) - 1) * count(low, maxVar) + Math.pow(2, varHigh - ut.var(bdd) - 1) * count(high, maxVar);
+			int low = lowOf(bdd);
+			int high = highOf(bdd);
+			int varLow = low < FIRST_NODE_NUM ? maxVar + 1 : varOf(low);
+			int varHigh = high < FIRST_NODE_NUM ? maxVar + 1 : varOf(high);
+			return Math.pow(2, varLow - varOf(bdd) - 1) * count(low, maxVar) + Math.pow(2, varHigh - varOf(bdd) - 1) * count(high, maxVar);
 		}
 
 		@Override
@@ -961,18 +1710,18 @@ public class Factory {
 			if (id < FIRST_NODE_NUM)
 				return id;
 			else
-				return pathCount(ut.low(id)) + pathCount(ut.high(id));
+				return pathCount(lowOf(id)) + pathCount(highOf(id));
 		}
 
 		@Override
 		public BDD restrict(BDD var) {
 			try (GCLock lock = new GCLock()) {
 				int res = id;
-				for (int varId = ((BDDImpl) var).id; varId >= FIRST_NODE_NUM; varId = ut.high(varId))
-					if (ut.low(varId) == ZERO)
-						res = innerRestrict(res, ut.var(varId), true);
-					else if (ut.low(varId) == ONE)
-						res = innerRestrict(res, ut.var(varId), false);
+				for (int varId = ((BDDImpl) var).id; varId >= FIRST_NODE_NUM; varId = highOf(varId))
+					if (lowOf(varId) == ZERO)
+						res = innerRestrict(res, varOf(varId), true);
+					else if (lowOf(varId) == ONE)
+						res = innerRestrict(res, varOf(varId), false);
 
 				return new BDDImpl(res);
 			}
@@ -982,11 +1731,11 @@ public class Factory {
 		public BDD restrictWith(BDD var) {
 			try (GCLock lock = new GCLock()) {
 				int res = id;
-				for (int varId = ((BDDImpl) var).id; varId >= FIRST_NODE_NUM; varId = ut.high(varId))
-					if (ut.low(varId) == ZERO)
-						res = innerRestrict(res, ut.var(varId), true);
-					else if (ut.low(varId) == ONE)
-						res = innerRestrict(res, ut.var(varId), false);
+				for (int varId = ((BDDImpl) var).id; varId >= FIRST_NODE_NUM; varId = highOf(varId))
+					if (lowOf(varId) == ZERO)
+						res = innerRestrict(res, varOf(varId), true);
+					else if (lowOf(varId) == ONE)
+						res = innerRestrict(res, varOf(varId), false);
 
 				setId(res);
 			}
@@ -1010,43 +1759,54 @@ public class Factory {
 
 		@Override
 		public BDD exist(BDD vars) {
-			BitSet varsAsBitSet = vars.vars();
-			int hashCode = varsAsBitSet.hashCode();
-			
 			try (GCLock lock = new GCLock()) {
-				return quantify(varsAsBitSet, true, hashCode);
+				return quantify(cubeOf(vars), true);
 			}
 		}
 
 		@Override
 		public BDD exist(BitSet vars) {
-			int hashCodeVars = vars.hashCode();
+			int cube = cubes.intern(vars);
 
 			try (GCLock lock = new GCLock()) {
-				return quantify(vars, true, hashCodeVars);
+				return quantify(cube, true);
 			}
 		}
 
 		@Override
 		public BDD forAll(int var) {
-			BDD falseOp = restrict(var, false);
-			BDD trueOp = restrict(var, true);
-
-			return falseOp.andWith(trueOp);
+			try (GCLock lock = new GCLock()) {
+				return new BDDImpl(innerQuantify(id, var, false));
+			}
 		}
 
 		@Override
 		public BDD forAll(BDD var) {
-			BitSet varsAsBitSet = var.vars();
-			int hashCodeVars = varsAsBitSet.hashCode();
-
 			try (GCLock lock = new GCLock()) {
-				return quantify(varsAsBitSet, false, hashCodeVars);
+				return quantify(cubeOf(var), false);
 			}
 		}
 
-		private BDD quantify(BitSet vars, boolean exist, int hashCodeVars) {
-			return new BDDImpl(innerQuantify(id, vars, exist, hashCodeVars));
+		private BDD quantify(int cube, boolean exist) {
+			return new BDDImpl(innerQuantify(id, cubes.get(cube), exist, cube));
+		}
+
+		/**
+		 * Yields the cube of the variables of the given BDD. The caller must
+		 * hold a {@link GCLock}, since cubes are remembered by index of the BDD.
+		 */
+
+		private int cubeOf(BDD vars) {
+			int varsId = ((BDDImpl) vars).id;
+			Integer cube = cubesOfBDDs.get(varsId);
+
+			if (cube == null) {
+				BitSet set = new BitSet();
+				updateVars(varsId, set, new HashSet<Integer>());
+				cubesOfBDDs.put(varsId, cube = cubes.intern(set));
+			}
+
+			return cube;
 		}
 
 		@Override
@@ -1062,21 +1822,21 @@ public class Factory {
 			else if (u == ONE)
 				return ONE;
 
-			int vu = ut.var(u), vd = ut.var(d);
+			int vu = varOf(u), vd = varOf(d);
 
 			if (d == ONE)
-				return MK(vu, simplify(d, ut.low(u)), simplify(d, ut.high(u)));
+				return MK(vu, simplify(d, lowOf(u)), simplify(d, highOf(u)));
 			else if (vd == vu)
-				if (ut.low(d) == ZERO)
-					return simplify(ut.high(d), ut.high(u));
-				else if (ut.high(d) == ZERO)
-					return simplify(ut.low(d), ut.low(u));
+				if (lowOf(d) == ZERO)
+					return simplify(highOf(d), highOf(u));
+				else if (highOf(d) == ZERO)
+					return simplify(lowOf(d), lowOf(u));
 				else
-					return MK(vu, simplify(ut.low(d), ut.low(u)), simplify(ut.high(d), ut.high(u)));
+					return MK(vu, simplify(lowOf(d), lowOf(u)), simplify(highOf(d), highOf(u)));
 			else if (vd < vu)
-				return MK(vd, simplify(ut.low(d), u), simplify(ut.high(d), u));
+				return MK(vd, simplify(lowOf(d), u), simplify(highOf(d), u));
 			else
-				return MK(vu, simplify(d, ut.low(u)), simplify(d, ut.high(u)));
+				return MK(vu, simplify(d, lowOf(u)), simplify(d, highOf(u)));
 		}
 
 		@Override
@@ -1091,12 +1851,12 @@ public class Factory {
 
 		@Override
 		public boolean isVar() {
-			return ut.low(id) == ZERO && ut.high(id) == ONE;
+			return lowOf(id) == ZERO && highOf(id) == ONE;
 		}
 
 		@Override
 		public boolean isNotVar() {
-			return ut.low(id) == ONE && ut.high(id) == ZERO;
+			return lowOf(id) == ONE && highOf(id) == ZERO;
 		}
 
 		@Override
@@ -1112,12 +1872,12 @@ public class Factory {
 
 		private void varProfile(int bdd, int[] varp, Set<Integer> seen) {
 			// terminal node or already seen
-			if (bdd < FIRST_NODE_NUM || !seen.add(bdd))
+			if (bdd < FIRST_NODE_NUM || !seen.add(ut.nodeOf(bdd)))
 				return;
 
-			varp[ut.var(bdd)]++;
-			varProfile(ut.low(bdd), varp, seen);
-			varProfile(ut.high(bdd), varp, seen);
+			varp[varOf(bdd)]++;
+			varProfile(lowOf(bdd), varp, seen);
+			varProfile(highOf(bdd), varp, seen);
 		}
 
 		@Override
@@ -1132,45 +1892,60 @@ public class Factory {
 		}
 
 		private int nodeCount(int bdd, Set<Integer> seen) {
-			// terminal node or already seen
-			if (bdd < FIRST_NODE_NUM || !seen.add(bdd))
+			// terminal node or already seen; a BDD and its negation share their nodes
+			if (bdd < FIRST_NODE_NUM || !seen.add(ut.nodeOf(bdd)))
 				return 0;
 
 			// variables or their negation
 			if (bdd < NUMBER_OF_PREALLOCATED_NODES)
 				return 1;
 
-			return 1 + nodeCount(ut.low(bdd), seen) + nodeCount(ut.high(bdd), seen);
+			return 1 + nodeCount(lowOf(bdd), seen) + nodeCount(highOf(bdd), seen);
 		}
 
 		@Override
 		public BDD replace(Map<Integer, Integer> renaming) {
+			return replace(compileRenaming(renaming));
+		}
+
+		@Override
+		public BDD replace(Renaming renaming) {
+			checkOwner(renaming);
+
 			if (id == ZERO)
 				return makeZero();
 			else if (id == ONE)
 				return makeOne();
 
-			int hash = renaming.hashCode();
-
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(innerReplace(id, renaming, hash));
+				return new BDDImpl(innerReplace(id, renaming));
 			}
 		}
 
 		@Override
 		public BDD replaceWith(Map<Integer, Integer> renaming) {
+			return replaceWith(compileRenaming(renaming));
+		}
+
+		@Override
+		public BDD replaceWith(Renaming renaming) {
+			checkOwner(renaming);
+
 			if (id < FIRST_NODE_NUM) // terminal node
 				return this;
 
-			int hashCodeOfRenaming = renaming.hashCode();
-
 			try (GCLock lock = new GCLock()) {
-				setId(innerReplace(id, renaming, hashCodeOfRenaming));
+				setId(innerReplace(id, renaming));
 			}
 
 			return this;
 		}
 
+		private void checkOwner(Renaming renaming) {
+			if (renaming.factory != Factory.this)
+				throw new IllegalArgumentException("The renaming was made by another factory");
+		}
+
 		@Override
 		public BDD ite(BDD thenBDD, BDD elseBDD) {
 			try (GCLock lock = new GCLock()) {
@@ -1180,8 +1955,26 @@ public class Factory {
 
 		@Override
 		public BDD relProd(BDD other, BDD var) {
-			// TODO this implementation is correct, but inefficient
-			return and(other).exist(var);
+			ut.gcIfAlmostFull();
+
+			try (GCLock lock = new GCLock()) {
+				int cube = cubeOf(var);
+				return new BDDImpl(innerRelProd(id, ((BDDImpl) other).id, cubes.get(cube), cube));
+			}
+		}
+
+		/**
+		 * Applies an operator to this BDD and another, and quantifies the
+		 * result over the given variables, without building the intermediate BDD.
+		 */
+
+		BDD applyQuantified(BDD other, Operator op, Quantifier quantifier, BDD vars) {
+			ut.gcIfAlmostFull();
+
+			try (GCLock lock = new GCLock()) {
+				int cube = cubeOf(vars);
+				return new BDDImpl(innerApplyQuantified(op, quantifier, id, ((BDDImpl) other).id, cubes.get(cube), cube));
+			}
 		}
 
 		@Override
@@ -1203,29 +1996,40 @@ public class Factory {
 			}
 		}
 
+		private int hashCodeOf(int id) {
+			int hashCode = ut.hashCodeAux(ut.nodeOf(id));
+
+			return complementEdges && (id & 1) != 0 ? ~hashCode : hashCode;
+		}
+
 		@Override
 		public int hashCodeAux() {
-			return hashCode;
+			if (ut.storesHashCodes())
+				return hashCode;
+
+			try (GCLock lock = new GCLock()) {
+				return id >= 0 ? hashCodeOf(id) : hashCode;
+			}
 		}
 
 		@Override
 		public int var() {
 			try (GCLock lock = new GCLock()) {
-				return ut.var(id);
+				return varOf(id);
 			}
 		}
 
 		@Override
 		public BDDImpl high() {
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(ut.high(id));
+				return new BDDImpl(highOf(id));
 			}
 		}
 
 		@Override
 		public BDDImpl low() {
 			try (GCLock lock = new GCLock()) {
-				return new BDDImpl(ut.low(id));
+				return new BDDImpl(lowOf(id));
 			}
 		}
 
@@ -1250,9 +2054,9 @@ public class Factory {
 				return;
 
 			if (id >= FIRST_NODE_NUM) {
-				vars.set(ut.var(id));
-				updateVars(ut.low(id), vars, seen);
-				updateVars(ut.high(id), vars, seen);
+				vars.set(varOf(id));
+				updateVars(lowOf(id), vars, seen);
+				updateVars(highOf(id), vars, seen);
 			}
 		}
 
@@ -1267,9 +2071,9 @@ public class Factory {
 			if (bdd < FIRST_NODE_NUM)
 				return -1;
 
-			int low = ut.low(bdd);
-			int maxVar = Math.max(ut.var(bdd), maxVar(low));
-			int high = ut.high(bdd);
+			int low = lowOf(bdd);
+			int maxVar = Math.max(varOf(bdd), maxVar(low));
+			int high = highOf(bdd);
 			maxVar = Math.max(maxVar, maxVar(high));
 			return maxVar;
 		}
@@ -1367,6 +2171,159 @@ public class Factory {
 		return ut.setCacheRatio(cacheRatio);
 	}
 
+	/**
+	 * @return the cache size, that is, the number of entries of the
+	 *         {@link OperationCache#APPLY} cache with its default share
+	 */
+	public int getCacheSize() {
+		return ut.getCacheSize();
+	}
+
+	/**
+	 * Sets the cache size. Each operator cache keeps its share of it and
+	 * keeps its entries, as far as they fit. All other operations on this
+	 * factory wait meanwhile, hence this must not be called while another
+	 * operation of the same thread is running on this factory.
+	 *
+	 * @param cacheSize the new cache size
+	 */
+	public void setCacheSize(int cacheSize) {
+		if (cacheSize <= 0)
+			throw new IllegalArgumentException("non-positive cache size " + cacheSize);
+
+		ut.setCacheSize(cacheSize);
+	}
+
+	/**
+	 * Sets the share of the cache size taken by the given operator cache.
+	 * For instance, a share of 0.5 for {@link OperationCache#QUANT} gives
+	 * quantification a cache half as large as the cache size. The cache
+	 * starts again empty.
+	 *
+	 * @param cache the operator cache
+	 * @param share the share
+	 * @return the old share
+	 */
+	public double setCacheShare(OperationCache cache, double share) {
+		try (GCLock lock = new GCLock()) {
+			return ut.setCacheShare(cache, share);
+		}
+	}
+
+	/**
+	 * Determines if the operator caches are rebalanced when the node table
+	 * grows. In that case, half of their total size is redistributed in
+	 * proportion to the misses of each cache since the previous growth.
+	 * The default is false.
+	 *
+	 * @param cacheRebalancing true if and only if the caches must be rebalanced
+	 * @return the old setting
+	 */
+	public boolean setCacheRebalancing(boolean cacheRebalancing) {
+		return ut.setCacheRebalancing(cacheRebalancing);
+	}
+
+	/**
+	 * Lets and, or, xor, nand, biimp and imp run in parallel on the pool of
+	 * this factory. The given number of topmost levels of their recursion
+	 * fork their low branch, so that up to 2^depth subproblems are computed
+	 * in parallel. Forking costs more than it gains on small BDDs, hence the
+	 * default is 0, that is, operations are sequential.
+	 *
+	 * @param depth the number of levels that fork
+	 * @return the old setting
+	 */
+	public int setParallelApplyDepth(int depth) {
+		if (depth < 0)
+			throw new IllegalArgumentException("negative depth " + depth);
+
+		int old = parallelApplyDepth;
+		parallelApplyDepth = depth;
+		return old;
+	}
+
+	/**
+	 * Determines which results of and, or, xor, biimp and imp are cached.
+	 * Subproblems whose topmost variable is less than the given number of
+	 * variables above the largest variable used so far are computed
+	 * without looking up or updating the cache. They are cheap to recompute
+	 * and would otherwise evict the results of larger subproblems.
+	 * The default is 0, that is, all results are cached.
+	 *
+	 * @param height the number of variables
+	 * @return the old setting
+	 */
+	public int setCacheAdmissionHeight(int height) {
+		if (height < 0)
+			throw new IllegalArgumentException("negative height " + height);
+
+		int old = cacheAdmissionHeight;
+		cacheAdmissionHeight = height;
+		return old;
+	}
+
+	/**
+	 * Determines if the lookups into the operator caches are counted, for
+	 * {@link #getCacheLookups(OperationCache)}, {@link #getCacheHits(OperationCache)},
+	 * {@link #getSkippedCacheLookups()} and {@link #printStatistics()}. Counting
+	 * slows down every operation a bit. It is turned on by
+	 * {@link #setCacheRebalancing(boolean)} and by {@link CacheBudget#register(Factory)},
+	 * that need the counts. The default is false.
+	 *
+	 * @param cacheStatistics true if and only if the lookups must be counted
+	 * @return the old setting
+	 */
+	public boolean setCacheStatistics(boolean cacheStatistics) {
+		return ut.setCacheStatistics(cacheStatistics);
+	}
+
+	/**
+	 * Yields the number of lookups into a cache since the node table last
+	 * grew. For {@link OperationCache#APPLY}, this does not include the
+	 * subproblems that were not cached because of {@link #setCacheAdmissionHeight(int)}.
+	 *
+	 * @param cache the cache
+	 * @return the number of lookups
+	 */
+	public long getCacheLookups(OperationCache cache) {
+		return ut.getLookups(cache);
+	}
+
+	/**
+	 * Yields the number of lookups into a cache that found a result, since
+	 * the node table last grew.
+	 *
+	 * @param cache the cache
+	 * @return the number of hits
+	 */
+	public long getCacheHits(OperationCache cache) {
+		return ut.getHits(cache);
+	}
+
+	/**
+	 * Yields the number of APPLY subproblems computed without the cache,
+	 * because of {@link #setCacheAdmissionHeight(int)}, since the node table
+	 * last grew.
+	 *
+	 * @return the number of subproblems
+	 */
+	public long getSkippedCacheLookups() {
+		return ut.getSkippedLookups();
+	}
+
+	/**
+	 * Determines if the operator caches keep their entries across garbage
+	 * collection. In that case, the entries whose operands and result
+	 * survive are moved to the new indexes of their nodes and the others are
+	 * dropped. Otherwise, the caches are cleared. The default is false.
+	 *
+	 * @param cacheRemapping true if and only if the entries must be kept
+	 * @return the old setting
+	 */
+	public boolean setCacheRemapping(boolean cacheRemapping) {
+		return ut.setCacheRemapping(cacheRemapping);
+	}
+
 	/**
 	 * Sets the minimum percentage of nodes to be reclaimed after a garbage collection.
 	 * If this percentage is not reclaimed, the node table will be grown.
@@ -1406,9 +2363,12 @@ public class Factory {
 	 */
 
 	protected void updateIndicesOfAllBDDsCreatedSoFar(int[] newPositions) {
+		// the cubes of the BDDs are remembered by index, which is changing
+		cubesOfBDDs.clear();
+
 		for (BDDImpl bdd: allBDDsCreatedSoFar)
 			if (bdd.id >= NUMBER_OF_PREALLOCATED_NODES)
-				bdd.id = newPositions[bdd.id];
+				bdd.id = ut.relocate(newPositions, bdd.id);
 	}
 
 	/**
@@ -1423,7 +2383,7 @@ public class Factory {
 			return;
 		}
 
-		for (int pos = 0; pos < NUMBER_OF_PREALLOCATED_NODES; pos++)
+		for (int pos = ut.nodeOf(NUMBER_OF_PREALLOCATED_NODES - 1); pos >= 0; pos--)
 			aliveNodes[pos] = true;
 
 		@SuppressWarnings("unchecked")
@@ -1446,7 +2406,7 @@ public class Factory {
 		List<BDDImpl> copy = (ArrayList<BDDImpl>) allBDDsCreatedSoFar.clone();
 		allBDDsCreatedSoFar.clear();
 
-		for (int pos = 0; pos < NUMBER_OF_PREALLOCATED_NODES; pos++)
+		for (int pos = ut.nodeOf(NUMBER_OF_PREALLOCATED_NODES - 1); pos >= 0; pos--)
 			aliveNodes[pos] = true;
 
 		try {
@@ -1467,8 +2427,10 @@ public class Factory {
 		freedBDDsCounter = 0;
 	}
 
-	private void markAsAlive(int node, boolean[] aliveNodes) {
-		if (node >= NUMBER_OF_PREALLOCATED_NODES && !aliveNodes[node]) {
+	private void markAsAlive(int id, boolean[] aliveNodes) {
+		int node = ut.nodeOf(id);
+
+		if (id >= NUMBER_OF_PREALLOCATED_NODES && !aliveNodes[node]) {
 			aliveNodes[node] = true;
 			markAsAlive(ut.low(node), aliveNodes);
 			markAsAlive(ut.high(node), aliveNodes);
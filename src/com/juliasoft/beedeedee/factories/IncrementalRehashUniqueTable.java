@@ -0,0 +1,273 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A unique table that does not rebuild its hash table while the world is
+ * stopped for a resize. The hash table has a power-of-two number of buckets,
+ * hence a bucket of the old hash table splits into buckets of the new one that
+ * are congruent to it modulo the old size and are guarded by the same lock.
+ * Old and new hash tables coexist after a resize: a bucket migrates the first
+ * time a node is created in it, or when a background task reaches it, while
+ * all other operations keep running. The time reported to the
+ * {@link Factory.ResizeListener} does not include the migration anymore.
+ */
+class IncrementalRehashUniqueTable extends ResizingAndGarbageCollectedUniqueTable {
+
+	private final static VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	/**
+	 * The smallest hash table we allocate. It must be at least the number
+	 * of locks, or otherwise the split buckets would not share their lock.
+	 */
+
+	private final static int MIN_HASH_TABLE_SIZE = 1024;
+
+	private final static int MAX_HASH_TABLE_SIZE = 1 << 30;
+
+	/**
+	 * The value of a bucket of the old hash table that has been migrated already.
+	 */
+
+	private final static int MIGRATED = -2;
+
+	/**
+	 * The hash table before the last resize, while its buckets are being
+	 * migrated into {@link #H}. It is null when there is no migration going on.
+	 */
+
+	private volatile int[] oldH;
+
+	/**
+	 * The number of buckets of {@link #oldH} that have been migrated so far.
+	 */
+
+	private final AtomicInteger migratedBuckets = new AtomicInteger();
+
+	/**
+	 * Runs the background migrations, one at a time. It is not the pool of
+	 * the factory, whose workers might be needed by the thread that holds our
+	 * locks. Its only thread is a daemon that dies when it has been idle for
+	 * a while. A migration that is queued after a newer resize finds its old
+	 * hash table obsolete and ends immediately.
+	 */
+
+	private final ExecutorService migrator = new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+		Thread thread = new Thread(task, "BeeDeeDee rehash");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	IncrementalRehashUniqueTable(int size, int cacheSize, Factory factory) {
+		super(size, cacheSize, factory);
+	}
+
+	@Override
+	protected int hashTableSize(int size) {
+		int slots = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		return slots <= 0 || slots > MAX_HASH_TABLE_SIZE ? MAX_HASH_TABLE_SIZE : Math.max(MIN_HASH_TABLE_SIZE, slots);
+	}
+
+	@Override
+	protected int hash(int var, int low, int high, int size) {
+		return OpenAddressingUniqueTable.mix(var, low, high) & (hashTableSize(size) - 1);
+	}
+
+	@Override
+	public int get(int var, int low, int high) {
+		while (true) {
+			int[] H = this.H;
+			int pos = OpenAddressingUniqueTable.mix(var, low, high) & (H.length - 1);
+
+			int result = getOptimistic(var, low, high, H, pos);
+			if (result >= 0)
+				return result;
+
+			synchronized (getLock(pos)) {
+				// if the hash table changed, a resize occurred while we were
+				// trying to access the critical section and pos must be recomputed
+				if (H != this.H)
+					continue;
+
+				int[] oldH = this.oldH;
+				if (oldH != null)
+					migrate(oldH, pos & (oldH.length - 1));
+
+				int head = H[pos];
+				for (int bin = head; bin >= 0; bin = next(bin))
+					if (isVarLowHigh(bin, var, low, high))
+						return bin;
+
+				Chunk chunk = currentChunk();
+				if (chunk != null) {
+					int node = chunk.next++;
+					setAt(node, var, low, high);
+					setNext(node, head);
+					INTS.setRelease(H, pos, node);
+
+					return node;
+				}
+			}
+
+			// the table is full: we resize it or wait for somebody else to do it
+			if (!isResizeInProgress())
+				resize();
+			else
+				while (resizeRunning())
+					Thread.yield();
+		}
+	}
+
+	/**
+	 * Looks for a node without taking any lock. Since buckets might be
+	 * migrating, this might miss a node that exists: the caller will then
+	 * look again under the lock of the bucket. Migration keeps the relative
+	 * order of the nodes in a chain, hence a chain never looks cyclic.
+	 */
+
+	private int getOptimistic(int var, int low, int high, int[] H, int pos) {
+		int[] oldH = this.oldH;
+		int bin = MIGRATED;
+
+		if (oldH != null)
+			bin = (int) INTS.getAcquire(oldH, pos & (oldH.length - 1));
+
+		if (bin == MIGRATED)
+			bin = (int) INTS.getAcquire(H, pos);
+
+		for (; bin >= 0; bin = next(bin))
+			if (isVarLowHigh(bin, var, low, high))
+				return bin;
+
+		return -1;
+	}
+
+	/**
+	 * Moves the nodes of a bucket of the old hash table into the buckets of
+	 * the new one. The caller must hold the lock of the bucket.
+	 *
+	 * @param oldH the old hash table
+	 * @param bucket the bucket of {@code oldH}
+	 */
+
+	private void migrate(int[] oldH, int bucket) {
+		int head = oldH[bucket];
+		if (head == MIGRATED)
+			return;
+
+		int[] H = this.H;
+		int mask = H.length - 1, shift = Integer.numberOfTrailingZeros(oldH.length);
+		int[] heads = new int[H.length >>> shift], tails = new int[heads.length];
+		Arrays.fill(heads, -1);
+		Arrays.fill(tails, -1);
+
+		for (int bin = head, next; bin >= 0; bin = next) {
+			next = next(bin);
+			int split = (OpenAddressingUniqueTable.mix(var(bin), low(bin), high(bin)) & mask) >>> shift;
+
+			if (tails[split] < 0)
+				heads[split] = bin;
+			else
+				setNext(tails[split], bin);
+
+			tails[split] = bin;
+		}
+
+		for (int split = 0; split < heads.length; split++) {
+			if (tails[split] >= 0)
+				setNext(tails[split], -1);
+
+			INTS.setRelease(H, bucket + (split << shift), heads[split]);
+		}
+
+		INTS.setRelease(oldH, bucket, MIGRATED);
+
+		if (migratedBuckets.incrementAndGet() == oldH.length)
+			this.oldH = null;
+	}
+
+	/**
+	 * Migrates all buckets of the given old hash table, one lock at a time,
+	 * unless another resize or a garbage collection makes it useless.
+	 */
+
+	private void migrateAll(int[] oldH) {
+		for (int stripe = 0; stripe < MIN_HASH_TABLE_SIZE && this.oldH == oldH; stripe++) {
+			// we exclude garbage collection as any other operation does
+			ReentrantLock gcLock = getGCLock();
+			gcLock.lock();
+			try {
+				synchronized (getLock(stripe)) {
+					if (this.oldH != oldH)
+						return;
+
+					for (int bucket = stripe; bucket < oldH.length; bucket += MIN_HASH_TABLE_SIZE)
+						migrate(oldH, bucket);
+				}
+			}
+			finally {
+				gcLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return true if and only if the buckets of the hash table are being migrated
+	 */
+
+	boolean isMigrating() {
+		return oldH != null;
+	}
+
+	@Override
+	protected void rehashAfterResize(int[] previousH) {
+		int[] H = this.H;
+
+		if (oldH != null || H.length % previousH.length != 0)
+			// the previous migration is not complete, hence previousH does not
+			// lead to all nodes, or its buckets do not split into the new ones
+			updateHashTable();
+		else if (H.length == previousH.length)
+			// the buckets did not change
+			this.H = previousH;
+		else {
+			migratedBuckets.set(0);
+			oldH = previousH;
+
+			migrator.execute(() -> migrateAll(previousH));
+		}
+	}
+
+	@Override
+	void updateHashTable() {
+		// all nodes get reinserted: the old hash table is not needed anymore
+		oldH = null;
+		super.updateHashTable();
+	}
+}
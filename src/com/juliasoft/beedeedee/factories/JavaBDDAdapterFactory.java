@@ -755,31 +755,45 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 			return temp;
 		}
 
-		/**
-		 * Unsupported operation.
-		 */
-		
 		@Override
 		public BDD applyAll(BDD that, BDDOp opr, BDD var) {
-			throw new UnsupportedOperationException();
+			return applyQuantified(that, opr, var, Quantifier.FORALL);
 		}
 
-		/**
-		 * Unsupported operation.
-		 */
-		
 		@Override
 		public BDD applyEx(BDD that, BDDOp opr, BDD var) {
-			throw new UnsupportedOperationException();
+			return applyQuantified(that, opr, var, Quantifier.EXIST);
 		}
 
 		/**
-		 * Unsupported operation.
+		 * Unique quantification is the exclusive or of the two cofactors of
+		 * each quantified variable. Hence the result is false wherever a
+		 * quantified variable is not tested by the operands, as for
+		 * {@code unique} of {@code JFactory}. Only and, or, xor, imp and biimp
+		 * are supported.
 		 */
-		
+
 		@Override
 		public BDD applyUni(BDD that, BDDOp opr, BDD var) {
-			throw new UnsupportedOperationException();
+			return applyQuantified(that, opr, var, Quantifier.UNIQUE);
+		}
+
+		private BDD applyQuantified(BDD that, BDDOp opr, BDD var, Quantifier quantifier) {
+			Operator op;
+			if (opr == and)
+				op = Operator.AND;
+			else if (opr == or)
+				op = Operator.OR;
+			else if (opr == xor)
+				op = Operator.XOR;
+			else if (opr == imp)
+				op = Operator.IMP;
+			else if (opr == biimp)
+				op = Operator.BIIMP;
+			else
+				throw new UnsupportedOperationException("Unsupported operator: " + opr);
+
+			return new JavaBDDAdapterBDD(((Factory.BDDImpl) bdd).applyQuantified(((JavaBDDAdapterBDD)that).bdd, op, quantifier, ((JavaBDDAdapterBDD)var).bdd));
 		}
 
 		@Override
@@ -818,7 +832,7 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 		@Override
 		public BDD replace(BDDPairing pair) {
 			try {
-				return new JavaBDDAdapterBDD(bdd.replace(((JavaBDDAdapterBDDPairing)pair).renaming));
+				return new JavaBDDAdapterBDD(bdd.replace(((JavaBDDAdapterBDDPairing)pair).compiled()));
 			} catch (ReplacementWithExistingVarException e) {
 				throw new BDDException("Trying to replace with variable " + e.getVarNum() + " which is already in the bdd");
 			}
@@ -827,7 +841,7 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 		@Override
 		public BDD replaceWith(BDDPairing pair) {
 			try {
-				bdd.replaceWith(((JavaBDDAdapterBDDPairing)pair).renaming);
+				bdd.replaceWith(((JavaBDDAdapterBDDPairing)pair).compiled());
 			} catch (ReplacementWithExistingVarException e) {
 				throw new BDDException("Trying to replace with variable " + e.getVarNum() + " which is already in the bdd");
 			}
@@ -946,6 +960,20 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 		
 		private final Map<Integer, Integer> renaming = new HashMap<Integer, Integer>();
 
+		/**
+		 * The renaming compiled by the factory, or null if it must be recompiled.
+		 */
+
+		private Renaming compiled;
+
+		private Renaming compiled() {
+			Renaming compiled = this.compiled;
+			if (compiled == null || compiled.factory != factory)
+				this.compiled = compiled = factory.compileRenaming(renaming);
+
+			return compiled;
+		}
+
 		@Override
 		public void set(int oldvar, int newvar) {
 			if (oldvar == newvar)
@@ -957,6 +985,7 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 	        	throw new BDDException("Unknown variable " + newvar + " max allowed is " + (bddVarNum - 1));
 
 	        renaming.put(oldvar, newvar);
+	        compiled = null;
 		}
 
 		@Override
@@ -972,6 +1001,7 @@ public class JavaBDDAdapterFactory extends BDDFactory {
 		@Override
 		public void reset() {
 			renaming.clear();
+			compiled = null;
 		}
 	}
 }
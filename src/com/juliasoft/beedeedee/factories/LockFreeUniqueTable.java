@@ -0,0 +1,154 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A unique table that never takes a monitor when looking up or creating
+ * a node. New nodes are published by a compare-and-set on the head of their
+ * collision chain and their slots are carved out of per-thread allocation
+ * chunks. Resize still stops the world, but it waits for the insertions in
+ * flight to drain instead of excluding them through striped locks.
+ */
+class LockFreeUniqueTable extends ResizingAndGarbageCollectedUniqueTable {
+
+	protected final static VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	/**
+	 * The number of stripes used to count the insertions in flight. Each
+	 * stripe lives on its own cache line, so that threads do not contend.
+	 */
+
+	private final static int STRIPES = 64;
+	private final static int PADDING = 16;
+
+	private final AtomicIntegerArray inserters = new AtomicIntegerArray(STRIPES * PADDING);
+
+	/**
+	 * True while a resize is waiting for, or running after, the drain of the
+	 * insertions in flight.
+	 */
+
+	private volatile boolean resizing;
+
+	LockFreeUniqueTable(int size, int cacheSize, Factory factory) {
+		super(size, cacheSize, factory);
+	}
+
+	@Override
+	public final int get(int var, int low, int high) {
+		while (true) {
+			int stripe = (int) (Thread.currentThread().getId() % STRIPES) * PADDING;
+
+			inserters.incrementAndGet(stripe);
+			try {
+				// the increment above and this read pair with the write to
+				// resizing and the read of the counters in resize()
+				if (!resizing) {
+					int result = getOrInsert(var, low, high);
+					if (result >= 0)
+						return result;
+				}
+			}
+			finally {
+				inserters.decrementAndGet(stripe);
+			}
+
+			// the table is full or a resize is going on
+			if (!resizing && !isResizeInProgress())
+				resize();
+			else
+				while (resizing || resizeRunning())
+					Thread.yield();
+		}
+	}
+
+	/**
+	 * Looks for the given node and adds it if missing.
+	 *
+	 * @return the node, or -1 if the table is full
+	 */
+
+	protected int getOrInsert(int var, int low, int high) {
+		int[] H = this.H;
+		int pos = hash(var, low, high, H.length);
+		int head = (int) INTS.getAcquire(H, pos);
+
+		for (int bin = head; bin >= 0; bin = next(bin))
+			if (isVarLowHigh(bin, var, low, high))
+				return bin;
+
+		Chunk chunk = currentChunk();
+		if (chunk == null)
+			return -1;
+
+		int node = chunk.next;
+		setAt(node, var, low, high);
+		setNext(node, head);
+
+		while (!INTS.compareAndSet(H, pos, head, node)) {
+			// somebody else extended the chain: only the nodes in front of
+			// the old head need to be checked
+			int newHead = (int) INTS.getAcquire(H, pos);
+			for (int bin = newHead; bin != head; bin = next(bin))
+				if (isVarLowHigh(bin, var, low, high)) {
+					// the slot stays in the chunk and will be reused
+					invalidate(node);
+					return bin;
+				}
+
+			setNext(node, head = newHead);
+		}
+
+		chunk.next++;
+
+		return node;
+	}
+
+	@Override
+	protected void setAt(int where, int varNumber, int lowNode, int highNode) {
+		int pos = where * getNodeSize();
+		int[] table = ut;
+
+		table[pos++] = varNumber;
+		table[pos++] = lowNode;
+		table[pos++] = highNode;
+		table[pos++] = -1;
+		table[pos] = identityOf(where);
+	}
+
+	@Override
+	protected void resize() {
+		resizing = true;
+
+		try {
+			for (int stripe = 0; stripe < STRIPES * PADDING; stripe += PADDING)
+				while (inserters.get(stripe) > 0)
+					Thread.yield();
+
+			super.resize();
+		}
+		finally {
+			resizing = false;
+		}
+	}
+}
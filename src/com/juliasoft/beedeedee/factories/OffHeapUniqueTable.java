@@ -0,0 +1,73 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A unique table whose nodes live outside the Java heap, in direct buffers
+ * of a fixed number of nodes each. The garbage collector of the JVM never
+ * scans or copies them. The amount of direct memory is bounded by
+ * {@code -XX:MaxDirectMemorySize}. The rest stays on the Java heap: the hash
+ * table {@code H}, of up to {@link SimpleUniqueTable#MAX_SIZE} ints, and the
+ * arrays that each garbage collection allocates, with a boolean and an int
+ * per node, to mark the live nodes and to record where they move.
+ */
+class OffHeapUniqueTable extends AbstractSegmentedUniqueTable<IntBuffer> {
+
+	OffHeapUniqueTable(int size, int cacheSize, Factory factory) {
+		this(size, cacheSize, factory, DEFAULT_SEGMENT_BITS);
+	}
+
+	OffHeapUniqueTable(int size, int cacheSize, Factory factory, int segmentBits) {
+		super(size, cacheSize, factory, segmentBits);
+	}
+
+	@Override
+	protected IntBuffer[] newSegments(int count) {
+		return new IntBuffer[count];
+	}
+
+	@Override
+	protected IntBuffer newSegment(int ints) {
+		return ByteBuffer.allocateDirect(ints * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	@Override
+	protected int capacity(IntBuffer segment) {
+		return segment.capacity();
+	}
+
+	@Override
+	protected void copy(IntBuffer from, IntBuffer to) {
+		to.duplicate().put(from.duplicate());
+	}
+
+	@Override
+	protected int read(IntBuffer segment, int index) {
+		return segment.get(index);
+	}
+
+	@Override
+	protected void write(IntBuffer segment, int index, int value) {
+		segment.put(index, value);
+	}
+}
@@ -0,0 +1,198 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * A lock-free unique table whose hash table is open-addressed: H has
+ * a power-of-two number of slots, at least twice the number of nodes,
+ * that are probed linearly from a strong mixing hash. Nodes do not need
+ * a collision chain anymore, hence they take 4 ints instead of 5 and
+ * a lookup reads consecutive slots rather than chasing pointers.
+ * Hence this table redefines every path that looks up, inserts or rehashes
+ * nodes, so that the collision chains of its superclasses are never used.
+ */
+class OpenAddressingUniqueTable extends LockFreeUniqueTable {
+
+	protected static final int OA_HASHCODEAUX_OFFSET = 3;
+	protected static final int OA_NODE_SIZE = 4;
+
+	/**
+	 * The largest hash table we allocate. Beyond it, the load factor grows over 0.5.
+	 */
+
+	private static final int MAX_HASH_TABLE_SIZE = 1 << 30;
+
+	OpenAddressingUniqueTable(int size, int cacheSize, Factory factory) {
+		super(size, cacheSize, factory);
+	}
+
+	@Override
+	protected int getNodeSize() {
+		return OA_NODE_SIZE;
+	}
+
+	@Override
+	protected int hashTableSize(int size) {
+		int slots = Integer.highestOneBit(Math.max(1, size)) << 2;
+		return slots <= 0 || slots > MAX_HASH_TABLE_SIZE ? MAX_HASH_TABLE_SIZE : slots;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, applied to the three components of a node.
+	 */
+
+	protected static int mix(int var, int low, int high) {
+		long h = (((long) low << 32) | (high & 0xffffffffL)) ^ (var * 0x9e3779b97f4a7c15L);
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return (int) h;
+	}
+
+	@Override
+	protected int hash(int var, int low, int high, int size) {
+		return mix(var, low, high) & (hashTableSize(size) - 1);
+	}
+
+	@Override
+	protected int getOrInsert(int var, int low, int high) {
+		int[] H = this.H;
+		int mask = H.length - 1;
+		Chunk chunk = null;
+		int node = -1;
+
+		for (int pos = mix(var, low, high) & mask; ; pos = (pos + 1) & mask) {
+			int bin = (int) INTS.getAcquire(H, pos);
+
+			if (bin < 0) {
+				if (node < 0) {
+					if ((chunk = currentChunk()) == null)
+						return -1;
+
+					setAt(node = chunk.next, var, low, high);
+				}
+
+				if (INTS.compareAndSet(H, pos, -1, node)) {
+					chunk.next++;
+					return node;
+				}
+
+				// somebody else took the slot: it might be our node
+				bin = (int) INTS.getAcquire(H, pos);
+			}
+
+			if (isVarLowHigh(bin, var, low, high)) {
+				if (node >= 0)
+					// the slot stays in the chunk and will be reused
+					invalidate(node);
+
+				return bin;
+			}
+		}
+	}
+
+	/**
+	 * Computes all hash codes before probing, so that the CPU can overlap
+	 * the cache misses of the probes of different nodes.
+	 */
+
+	@Override
+	public void getAll(int[] vars, int[] lows, int[] highs, int[] out) {
+		int[] H = this.H;
+		int mask = H.length - 1, length = vars.length;
+
+		for (int i = 0; i < length; i++)
+			out[i] = mix(vars[i], lows[i], highs[i]) & mask;
+
+		for (int i = 0; i < length; i++) {
+			int var = vars[i], low = lows[i], high = highs[i], pos = out[i], bin;
+
+			// a concurrent resize might have changed the hash table: in that
+			// case we just miss the node, that is looked up again below
+			while ((bin = (int) INTS.getAcquire(H, pos)) >= 0 && !isVarLowHigh(bin, var, low, high))
+				pos = (pos + 1) & mask;
+
+			out[i] = bin >= 0 ? bin : get(var, low, high);
+		}
+	}
+
+	@Override
+	void updateHashTable() {
+		if (nextPos >= 600000) {
+			try {
+				pool.submit(() ->
+					IntStream.range(0, nextPos)
+						.parallel()
+						.forEach(this::reinsert)).get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		else
+			for (int i = nextPos - 1; i >= 0; i--)
+				reinsert(i);
+	}
+
+	private void reinsert(int node) {
+		int[] ut = this.ut, H = this.H;
+		int index = node * getNodeSize();
+
+		// we only consider valid entries
+		if (ut[index + VAR_OFFSET] >= 0) {
+			int mask = H.length - 1;
+			int pos = mix(ut[index + VAR_OFFSET], ut[index + LOW_OFFSET], ut[index + HIGH_OFFSET]) & mask;
+
+			while (!INTS.compareAndSet(H, pos, -1, node))
+				pos = (pos + 1) & mask;
+		}
+	}
+
+	@Override
+	protected int hashCodeAux(int id) {
+		return ut[id * OA_NODE_SIZE + OA_HASHCODEAUX_OFFSET];
+	}
+
+	@Override
+	protected void setAt(int where, int varNumber, int lowNode, int highNode) {
+		int pos = where * OA_NODE_SIZE;
+		int[] table = ut;
+
+		table[pos++] = varNumber;
+		table[pos++] = lowNode;
+		table[pos++] = highNode;
+		table[pos] = identityOf(where);
+	}
+
+	@Override
+	protected void setVarLowHighHash(int node, int varNumber, int lowNode, int highNode, int hca) {
+		int pos = node * OA_NODE_SIZE;
+
+		ut[pos++] = varNumber;
+		ut[pos++] = lowNode;
+		ut[pos++] = highNode;
+		ut[pos] = hca;
+	}
+}
@@ -0,0 +1,111 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+/**
+ * The caches of the results of the operations of a {@link Factory}.
+ * Each takes a share of the cache size of the factory.
+ */
+public enum OperationCache {
+
+	/**
+	 * The cache of and, or, xor, biimp and imp.
+	 */
+
+	APPLY(1.0, 16),
+
+	/**
+	 * The cache of restriction.
+	 */
+
+	RESTRICT(0.05, 16),
+
+	/**
+	 * The cache of functional composition.
+	 */
+
+	COMPOSE(0.05, 16),
+
+	/**
+	 * The cache of if-then-else, also used by functional composition.
+	 */
+
+	ITE(0.1, 16),
+
+	/**
+	 * The cache of variable renaming.
+	 */
+
+	REPLACE(0.05, 12),
+
+	/**
+	 * The cache of existential and universal quantification.
+	 */
+
+	QUANT(0.05, 12),
+
+	/**
+	 * The cache of relational products, that is, of conjunction followed
+	 * by existential quantification.
+	 */
+
+	RELPROD(0.05, 16),
+
+	/**
+	 * The cache of the applications of an operator followed by a quantification.
+	 */
+
+	QUANTIFIED_APPLY(0.05, 20),
+
+	/**
+	 * The cache of the equivalent variables of a BDD.
+	 */
+
+	EQUIV(0.05, 8),
+
+	/**
+	 * The cache of the renaming of variables with the leader of their class.
+	 */
+
+	RENAME_WITH_LEADER(0.05, 12),
+
+	/**
+	 * The cache of the removal of equivalent variables.
+	 */
+
+	SQUEEZE_EQUIV(0.05, 12);
+
+	/**
+	 * The share of the cache size that this cache takes by default.
+	 */
+
+	final double defaultShare;
+
+	/**
+	 * The approximate number of bytes of an entry of this cache. Objects
+	 * referenced from the entries are not included.
+	 */
+
+	final int entryBytes;
+
+	private OperationCache(double defaultShare, int entryBytes) {
+		this.defaultShare = defaultShare;
+		this.entryBytes = entryBytes;
+	}
+}
@@ -0,0 +1,319 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * A unique table with a separate hash table for each variable, as in CUDD.
+ * Each level is guarded by its own lock and grows on its own, without
+ * stopping the other levels, and knows how many nodes it holds. Since the
+ * hash tables of the levels refer to nodes by their position, a resize of
+ * the table of nodes does not need to rehash anything.
+ */
+class PerLevelUniqueTable extends ResizingAndGarbageCollectedUniqueTable {
+
+	private final static VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	private final static int MIN_LEVEL_SIZE = 16;
+
+	/**
+	 * The maximal average length of the collision chains of a level, before it grows.
+	 */
+
+	private final static int MAX_LOAD = 2;
+
+	/**
+	 * The hash table of a variable.
+	 */
+
+	private static class Level {
+
+		/**
+		 * A power-of-two number of buckets.
+		 */
+
+		private volatile int[] buckets;
+
+		/**
+		 * The number of nodes in the level. It is only modified under the lock
+		 * of the level, but it is also read without it.
+		 */
+
+		private volatile int count;
+
+		private Level() {
+			this.buckets = new int[MIN_LEVEL_SIZE];
+			Arrays.fill(buckets, -1);
+		}
+
+		private static int bucketsFor(int count) {
+			return Math.max(MIN_LEVEL_SIZE, Integer.highestOneBit(Math.max(1, count / MAX_LOAD)) << 1);
+		}
+	}
+
+	/**
+	 * The levels of the variables, indexed by variable number. They are
+	 * created on demand.
+	 */
+
+	private volatile Level[] levels = new Level[64];
+
+	/**
+	 * The level of the terminal nodes, whose variable numbers are huge.
+	 */
+
+	private final Level terminals = new Level();
+
+	private final Object levelsLock = new Object();
+
+	PerLevelUniqueTable(int size, int cacheSize, Factory factory) {
+		super(size, cacheSize, factory);
+	}
+
+	@Override
+	protected int hashTableSize(int size) {
+		// the global hash table is not used
+		return 1;
+	}
+
+	private Level levelOf(int var) {
+		Level[] levels = this.levels;
+		Level level;
+
+		if (var < levels.length && (level = levels[var]) != null)
+			return level;
+		else if (var >= Integer.MAX_VALUE - 1)
+			return terminals;
+
+		synchronized (levelsLock) {
+			levels = this.levels;
+			if (var >= levels.length)
+				levels = Arrays.copyOf(levels, Math.max(var + 1, levels.length * 2));
+
+			if ((level = levels[var]) == null)
+				level = levels[var] = new Level();
+
+			this.levels = levels;
+
+			return level;
+		}
+	}
+
+	private Object lockOf(int var) {
+		// the two terminals share their level, hence also its lock
+		return getLock(Math.min(var, Integer.MAX_VALUE - 1));
+	}
+
+	private static int bucketOf(int var, int low, int high, int[] buckets) {
+		return OpenAddressingUniqueTable.mix(var, low, high) & (buckets.length - 1);
+	}
+
+	@Override
+	public int get(int var, int low, int high) {
+		Level level = levelOf(var);
+
+		while (true) {
+			int[] buckets = level.buckets;
+			for (int bin = (int) INTS.getAcquire(buckets, bucketOf(var, low, high, buckets)); bin >= 0; bin = next(bin))
+				if (isVarLowHigh(bin, var, low, high))
+					return bin;
+
+			synchronized (lockOf(var)) {
+				buckets = level.buckets;
+				int pos = bucketOf(var, low, high, buckets), head = buckets[pos];
+
+				for (int bin = head; bin >= 0; bin = next(bin))
+					if (isVarLowHigh(bin, var, low, high))
+						return bin;
+
+				Chunk chunk = currentChunk();
+				if (chunk != null) {
+					int node = chunk.next++;
+					setAt(node, var, low, high);
+					setNext(node, head);
+					INTS.setRelease(buckets, pos, node);
+
+					if (++level.count > buckets.length * MAX_LOAD)
+						grow(level);
+
+					return node;
+				}
+			}
+
+			// the table is full: we resize it or wait for somebody else to do it
+			if (!isResizeInProgress())
+				resize();
+			else
+				while (resizeRunning())
+					Thread.yield();
+		}
+	}
+
+	/**
+	 * Reads the heads of all buckets before walking the collision chains, so
+	 * that the CPU can overlap their cache misses.
+	 */
+
+	@Override
+	public void getAll(int[] vars, int[] lows, int[] highs, int[] out) {
+		int length = vars.length;
+
+		for (int i = 0; i < length; i++) {
+			int[] buckets = levelOf(vars[i]).buckets;
+			out[i] = (int) INTS.getAcquire(buckets, bucketOf(vars[i], lows[i], highs[i], buckets));
+		}
+
+		for (int i = 0; i < length; i++) {
+			int var = vars[i], low = lows[i], high = highs[i], bin = out[i];
+
+			while (bin >= 0 && !isVarLowHigh(bin, var, low, high))
+				bin = next(bin);
+
+			out[i] = bin >= 0 ? bin : get(var, low, high);
+		}
+	}
+
+	/**
+	 * Doubles the buckets of a level. Each bucket splits into two, keeping
+	 * the relative order of its nodes, so that concurrent lookups can miss
+	 * a node but never loop. The caller must hold the lock of the level.
+	 */
+
+	private void grow(Level level) {
+		int[] buckets = level.buckets;
+		int length = buckets.length;
+		int[] newBuckets = new int[length * 2];
+
+		for (int pos = 0; pos < length; pos++) {
+			int lowHead = -1, lowTail = -1, highHead = -1, highTail = -1;
+
+			for (int bin = buckets[pos], next; bin >= 0; bin = next) {
+				next = next(bin);
+
+				if ((OpenAddressingUniqueTable.mix(var(bin), low(bin), high(bin)) & length) == 0) {
+					if (lowTail < 0)
+						lowHead = bin;
+					else
+						setNext(lowTail, bin);
+
+					lowTail = bin;
+				}
+				else {
+					if (highTail < 0)
+						highHead = bin;
+					else
+						setNext(highTail, bin);
+
+					highTail = bin;
+				}
+			}
+
+			if (lowTail >= 0)
+				setNext(lowTail, -1);
+
+			if (highTail >= 0)
+				setNext(highTail, -1);
+
+			newBuckets[pos] = lowHead;
+			newBuckets[pos + length] = highHead;
+		}
+
+		level.buckets = newBuckets;
+	}
+
+	@Override
+	public int nodesAtLevel(int var) {
+		Level[] levels = this.levels;
+		Level level;
+
+		return var >= 0 && var < levels.length && (level = levels[var]) != null ? level.count : 0;
+	}
+
+	@Override
+	protected void rehashAfterResize(int[] previousH) {
+		// nodes kept their position, hence the levels are still valid
+	}
+
+	@Override
+	void updateHashTable() {
+		Level[] levels = this.levels;
+		int nextPos = this.nextPos, terminalsIndex = levels.length;
+
+		// we sort the nodes by level, in increasing order of position
+		int[] starts = new int[levels.length + 2];
+		for (int node = 0; node < nextPos; node++) {
+			int var = var(node);
+			if (var >= 0)
+				starts[(var < levels.length ? var : terminalsIndex) + 1]++;
+		}
+
+		for (int index = 1; index < starts.length; index++)
+			starts[index] += starts[index - 1];
+
+		int[] cursors = Arrays.copyOf(starts, starts.length - 1);
+		int[] sorted = new int[starts[starts.length - 1]];
+		for (int node = 0; node < nextPos; node++) {
+			int var = var(node);
+			if (var >= 0)
+				sorted[cursors[var < levels.length ? var : terminalsIndex]++] = node;
+		}
+
+		if (nextPos >= 600000) {
+			try {
+				pool.submit(() ->
+					IntStream.rangeClosed(0, terminalsIndex)
+						.parallel()
+						.forEach(index -> rebuild(levels, index, sorted, starts))).get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		else
+			for (int index = 0; index <= terminalsIndex; index++)
+				rebuild(levels, index, sorted, starts);
+	}
+
+	private void rebuild(Level[] levels, int index, int[] sorted, int[] starts) {
+		int from = starts[index], to = starts[index + 1];
+		Level level = index < levels.length ? levels[index] : terminals;
+		if (level == null)
+			// no node has ever been created for this variable
+			return;
+
+		int[] buckets = new int[Level.bucketsFor(to - from)];
+		Arrays.fill(buckets, -1);
+
+		// nodes are pushed in decreasing order of position, hence chains are ordered
+		for (int cursor = to - 1; cursor >= from; cursor--) {
+			int node = sorted[cursor];
+			int pos = bucketOf(var(node), low(node), high(node), buckets);
+			setNext(node, buckets[pos]);
+			buckets[pos] = node;
+		}
+
+		level.count = to - from;
+		level.buckets = buckets;
+	}
+}
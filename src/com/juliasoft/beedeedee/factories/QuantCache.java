@@ -18,15 +18,16 @@
 */
 package com.juliasoft.beedeedee.factories;
 
-import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
 
 /**
- * The cache for existential and universal quantification.
+ * The cache for existential and universal quantification. The set of
+ * quantified variables is identified by its cube, as interned by a
+ * {@link CubeRegistry}, hence entries are made of ints only.
  */
 class QuantCache {
-	private final static int ENTRY_SIZE = 2;
+	private final static int ENTRY_SIZE = 3;
 	private final int[] cache;
-	private final BitSet[] varss;
 	private final int size;
 	private final Object[] locks = new Object[100];
 
@@ -41,7 +42,6 @@ class QuantCache {
 		this.cache = new int[arraySize];
 		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
 			cache[i] = -1;
-		this.varss = new BitSet[arraySize];
 		for (int pos = 0; pos < locks.length; pos++)
 			locks[pos] = new Object();
 	}
@@ -55,28 +55,69 @@ class QuantCache {
 			cache[i] = -1;
 	}
 
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd = relocation.applyAsInt(old[i]), result = relocation.applyAsInt(old[i + 2]);
+				if (bdd >= 0 && result >= 0)
+					store(bdd, old[i + 1], result);
+			}
+	}
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	void copyTo(QuantCache other, int from, int to) {
+		int[] cache = this.cache;
+
+		for (int i = from * ENTRY_SIZE; i < to * ENTRY_SIZE; i += ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.store(cache[i], cache[i + 1], cache[i + 2]);
+	}
+
 	/**
 	 * Gets an entry from this cache.
 	 * 
 	 * @param exist true if it is an existential quantification result
 	 * @param bdd the operand bdd index
-	 * @param vars the var set
-	 * @param hashCodeOfVs the hashCode of the vars set
+	 * @param cube the cube of the quantified variables
 	 * @return the index of the result, or -1 if not found
 	 */
-	int get(boolean exist, int bdd, BitSet vars, int hashCodeOfVs) {
-		if (exist)
-			bdd = -bdd;
+	int get(boolean exist, int bdd, int cube) {
+		int key = key(exist, cube);
+		int pos = hash(bdd, key);
+		int[] cache = this.cache;
 
-		int pos = hash(bdd, hashCodeOfVs);
+		if (cache[pos] == bdd && cache[pos + 1] == key)
+			synchronized (locks[pos % locks.length]) {
+				return cache[pos] == bdd && cache[pos + 1] == key ? cache[pos + 2] : -1;
+			}
 
-		synchronized (locks[pos % locks.length]) {
-			return cache[pos] == bdd && varss[pos++].equals(vars) ? cache[pos] : -1;
-		}
+		return -1;
+	}
+
+	private static int key(boolean exist, int cube) {
+		return exist ? cube << 1 | 1 : cube << 1;
 	}
 
-	private int hash(int bdd, int hashCodeOfVs) {
-		return ENTRY_SIZE * (Math.abs(bdd ^ hashCodeOfVs) % size);
+	private int hash(int bdd, int key) {
+		return ENTRY_SIZE * (((bdd ^ (key * 0x9e3779b9)) & Integer.MAX_VALUE) % size);
 	}
 
 	/**
@@ -84,20 +125,21 @@ class QuantCache {
 	 * 
 	 * @param exist true if it is an existential quantification result
 	 * @param bdd the operand bdd index
-	 * @param vars the var set
-	 * @param hashCodeOfVs the hashCode of the vars set
+	 * @param cube the cube of the quantified variables
 	 * @param result the computation result
 	 */
-	void put(boolean exist, int bdd, BitSet vars, int hashCodeOfVs, int result) {
-		if (exist)
-			bdd = -bdd;
+	void put(boolean exist, int bdd, int cube, int result) {
+		store(bdd, key(exist, cube), result);
+	}
 
-		int pos = hash(bdd, hashCodeOfVs);
+	private void store(int bdd, int key, int result) {
+		int pos = hash(bdd, key);
+		int[] cache = this.cache;
 
 		synchronized (locks[pos % locks.length]) {
-			varss[pos] = vars;
-			cache[pos++] = bdd;
-			cache[pos] = result;
+			cache[pos] = bdd;
+			cache[pos + 1] = key;
+			cache[pos + 2] = result;
 		}
 	}
-}
\ No newline at end of file
+}
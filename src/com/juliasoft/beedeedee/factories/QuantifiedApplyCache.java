@@ -0,0 +1,159 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The cache for quantified applications of an operator. The quantified
+ * variables are identified by their cube.
+ */
+class QuantifiedApplyCache {
+	private final static int ENTRY_SIZE = 5;
+	private final int[] cache;
+	private final int size;
+	private final Object[] locks = new Object[100];
+	
+	/**
+	 * Constructs a QuantifiedApplyCache of the given size.
+	 * 
+	 * @param size the size of the cache
+	 */
+	QuantifiedApplyCache(int size) {
+		this.size = size;
+		int arraySize = size * ENTRY_SIZE;
+		this.cache = new int[arraySize];
+		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
+			cache[i] = -1;
+		for (int pos = 0; pos < locks.length; pos++)
+			locks[pos] = new Object();
+	}
+
+	/**
+	 * Clears all the entries in this cache.
+	 */
+	void clear() {
+		int arraySize = size * ENTRY_SIZE;
+		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
+			cache[i] = -1;
+	}
+
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd1 = relocation.applyAsInt(old[i]), bdd2 = relocation.applyAsInt(old[i + 1]);
+				int result = relocation.applyAsInt(old[i + 4]);
+				if (bdd1 >= 0 && bdd2 >= 0 && result >= 0)
+					put(old[i + 3], bdd1, bdd2, old[i + 2], result);
+			}
+	}
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	void copyTo(QuantifiedApplyCache other, int from, int to) {
+		int[] cache = this.cache;
+
+		for (int i = from * ENTRY_SIZE; i < to * ENTRY_SIZE; i += ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.put(cache[i + 3], cache[i], cache[i + 1], cache[i + 2], cache[i + 4]);
+	}
+
+	/**
+	 * Gets an entry from this cache.
+	 * 
+	 * @param op the operator
+	 * @param quantifier the quantifier
+	 * @param bdd1 the first operand bdd index
+	 * @param bdd2 the second operand bdd index
+	 * @param cube the cube of the quantified variables
+	 * @return the index of the result, or -1 if not found
+	 */
+	int get(Operator op, Quantifier quantifier, int bdd1, int bdd2, int cube) {
+		return get(code(op, quantifier), bdd1, bdd2, cube);
+	}
+
+	private int get(int code, int bdd1, int bdd2, int cube) {
+		int pos = hash(code, bdd1, bdd2, cube);
+		int[] cache = this.cache;
+
+		if (cache[pos] == bdd1 && cache[pos + 1] == bdd2 && cache[pos + 2] == cube && cache[pos + 3] == code)
+			synchronized (locks[pos % locks.length]) {
+				return (cache[pos] == bdd1 && cache[pos + 1] == bdd2 && cache[pos + 2] == cube && cache[pos + 3] == code) ? cache[pos + 4] : -1;
+			}
+
+		return -1;
+	}
+
+	private static int code(Operator op, Quantifier quantifier) {
+		return op.ordinal() * Quantifier.values().length + quantifier.ordinal();
+	}
+
+	private static int TRIPLE(int a, int b, int c) {
+		int sum = a + b + c;
+		return ((sum * (sum + 1)) >> 1) + a;
+	}
+
+	private int hash(int code, int bdd1, int bdd2, int cube) {
+		return ENTRY_SIZE * (((TRIPLE(bdd1, bdd2, cube) * 31 + code) & Integer.MAX_VALUE) % size);
+	}
+
+	/**
+	 * Puts an entry into this cache.
+	 * 
+	 * @param op the operator
+	 * @param quantifier the quantifier
+	 * @param bdd1 the first operand bdd index
+	 * @param bdd2 the second operand bdd index
+	 * @param cube the cube of the quantified variables
+	 * @param result the computation result
+	 */
+	void put(Operator op, Quantifier quantifier, int bdd1, int bdd2, int cube, int result) {
+		put(code(op, quantifier), bdd1, bdd2, cube, result);
+	}
+
+	private void put(int code, int bdd1, int bdd2, int cube, int result) {
+		int pos = hash(code, bdd1, bdd2, cube);
+		int[] cache = this.cache;
+
+		synchronized (locks[pos % locks.length]) {
+			cache[pos] = bdd1;
+			cache[pos + 1] = bdd2;
+			cache[pos + 2] = cube;
+			cache[pos + 3] = code;
+			cache[pos + 4] = result;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.juliasoft.beedeedee.factories;
 
 import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
 
 public class RenameWithLeaderCache {
 	private final int[] bdds;
@@ -21,6 +22,41 @@ public class RenameWithLeaderCache {
 		Arrays.fill(bdds, -1);
 	}
 
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] oldBdds = bdds.clone(), oldResults = results.clone();
+		EquivalenceRelation[] oldErs = ers.clone();
+		clear();
+
+		for (int i = 0; i < oldBdds.length; i++)
+			if (oldBdds[i] >= 0) {
+				int bdd = relocation.applyAsInt(oldBdds[i]), result = relocation.applyAsInt(oldResults[i]);
+				if (bdd >= 0 && result >= 0)
+					put(bdd, oldErs[i], result);
+			}
+	}
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	void copyTo(RenameWithLeaderCache other, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (bdds[i] >= 0)
+				other.put(bdds[i], ers[i], results[i]);
+	}
+
 	public int get(int bdd, EquivalenceRelation er) {
 		int pos = hash(bdd, er);
 
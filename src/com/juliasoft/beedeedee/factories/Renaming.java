@@ -0,0 +1,95 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A renaming of variables, compiled once by {@link Factory#makeRenaming(Map)}
+ * and then applied to many BDDs. The new variable of each old one is read
+ * from an array, and each renaming has its own identifier, hence the cache
+ * of replace operations compares integers rather than maps.
+ */
+public final class Renaming {
+
+	/**
+	 * The factory that made this renaming.
+	 */
+
+	final Factory factory;
+
+	/**
+	 * The identifier of this renaming in its factory.
+	 */
+
+	final int id;
+
+	/**
+	 * The new variable of each old one, by old variable. Variables beyond
+	 * the end of the array are not renamed.
+	 */
+
+	private final int[] newVars;
+
+	private final Map<Integer, Integer> map;
+
+	Renaming(Factory factory, int id, Map<Integer, Integer> renaming) {
+		this.factory = factory;
+		this.id = id;
+		this.map = Collections.unmodifiableMap(new HashMap<>(renaming));
+
+		int length = 0;
+		for (Map.Entry<Integer, Integer> entry: renaming.entrySet()) {
+			if (entry.getKey() < 0 || entry.getValue() < 0)
+				throw new IllegalArgumentException("Negative variable in renaming " + renaming);
+
+			length = Math.max(length, entry.getKey() + 1);
+		}
+
+		this.newVars = new int[length];
+		for (int var = 0; var < length; var++)
+			newVars[var] = renaming.getOrDefault(var, var);
+	}
+
+	/**
+	 * Yields the variable that replaces the given one.
+	 *
+	 * @param var the old variable
+	 * @return the new variable, which is {@code var} itself if it is not renamed
+	 */
+
+	public int newVarOf(int var) {
+		return var < newVars.length ? newVars[var] : var;
+	}
+
+	/**
+	 * @return the map from old to new variables. It cannot be modified
+	 */
+
+	public Map<Integer, Integer> asMap() {
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		return map.toString();
+	}
+}
@@ -18,16 +18,15 @@
 */
 package com.juliasoft.beedeedee.factories;
 
-import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 /**
- * The cache for replace operations.
+ * The cache for replace operations. Renamings are identified by the
+ * identifier that their factory gave them.
  */
 class ReplaceCache {
-	private final static int ENTRY_SIZE = 2;
+	private final static int ENTRY_SIZE = 3;
 	private final int[] cache;
-	@SuppressWarnings("rawtypes")
-	private final Map[] renamings;
 	private final int size;
 	private final Object[] locks = new Object[100];
 	
@@ -42,7 +41,6 @@ class ReplaceCache {
 		this.cache = new int[arraySize];
 		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
 			cache[i] = -1;
-		renamings = new Map[arraySize];
 		for (int pos = 0; pos < locks.length; pos++)
 			locks[pos] = new Object();
 	}
@@ -56,41 +54,75 @@ class ReplaceCache {
 			cache[i] = -1;
 	}
 
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd = relocation.applyAsInt(old[i]), result = relocation.applyAsInt(old[i + 2]);
+				if (bdd >= 0 && result >= 0)
+					put(bdd, old[i + 1], result);
+			}
+	}
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	void copyTo(ReplaceCache other, int from, int to) {
+		int[] cache = this.cache;
+
+		for (int i = from * ENTRY_SIZE; i < to * ENTRY_SIZE; i += ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.put(cache[i], cache[i + 1], cache[i + 2]);
+	}
+
 	/**
 	 * Gets an entry from this cache.
 	 * 
 	 * @param bdd the operand bdd index
-	 * @param renaming a map for variable renaming
-	 * @param hashOfRenaming the hashCode of the renaming map
+	 * @param renaming the identifier of the renaming
 	 * @return the index of the result, or -1 if not found
 	 */
-	int get(int bdd, Map<Integer, Integer> renaming, int hashOfRenaming) {
-		int pos = hash(bdd, hashOfRenaming);
+	int get(int bdd, int renaming) {
+		int pos = hash(bdd, renaming);
 
 		synchronized (locks[pos % locks.length]) {
-			return cache[pos] == bdd && renaming.equals(renamings[pos++]) ? cache[pos] : -1;
+			return cache[pos] == bdd && cache[pos + 1] == renaming ? cache[pos + 2] : -1;
 		}
 	}
 
-	private int hash(int bdd, int hashOfRenaming) {
-		return ENTRY_SIZE * (Math.abs((bdd ^ hashOfRenaming)) % size);
+	private int hash(int bdd, int renaming) {
+		return ENTRY_SIZE * (((bdd ^ renaming * 0x9E3779B9) & Integer.MAX_VALUE) % size);
 	}
 
 	/**
 	 * Puts an entry into this cache.
 	 * 
 	 * @param bdd the operand bdd index
-	 * @param renaming a map for variable renaming
+	 * @param renaming the identifier of the renaming
 	 * @param result the computation result
-	 * @param hashOfRenaming the hashCode of the renaming map
 	 */
-	void put(int bdd, Map<Integer, Integer> renaming, int result, int hashOfRenaming) {
-		int pos = hash(bdd, hashOfRenaming);
+	void put(int bdd, int renaming, int result) {
+		int pos = hash(bdd, renaming);
 
 		synchronized (locks[pos % locks.length]) {
 			cache[pos] = bdd;
-			renamings[pos++] = renaming;
-			cache[pos] = result;
+			cache[pos + 1] = renaming;
+			cache[pos + 2] = result;
 		}
 	}
-}
\ No newline at end of file
+}
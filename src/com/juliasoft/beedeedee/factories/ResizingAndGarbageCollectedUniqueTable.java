@@ -18,10 +18,16 @@
 */
 package com.juliasoft.beedeedee.factories;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.IntStream;
 
 import com.juliasoft.beedeedee.factories.Factory.GarbageCollectionListener;
@@ -29,7 +35,7 @@ import com.juliasoft.beedeedee.factories.Factory.ResizeListener;
 
 public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
-	private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	protected final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
 	/**
 	 * The maximal number of nodes that is added at each resize operation.
@@ -50,6 +56,32 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 	private volatile double cacheRatio = 0.5;
 
+	/**
+	 * The part of the total share of the caches that follows their misses, when rebalancing.
+	 */
+
+	private final static double REBALANCED_SHARE = 0.5;
+
+	/**
+	 * The number of entries of a cache copied by the same task, when the
+	 * caches are migrated in parallel during a resize.
+	 */
+
+	private final static int MIGRATION_CHUNK = 1 << 16;
+
+	/**
+	 * True if the sizes of the caches follow their misses at each resize.
+	 */
+
+	private volatile boolean cacheRebalancing;
+
+	/**
+	 * True if garbage collection translates the entries of the caches that
+	 * refer to surviving nodes, rather than clearing the caches.
+	 */
+
+	private volatile boolean cacheRemapping;
+
 	/**
 	 * The minimum percentage of nodes to be reclaimed after a garbage collection.
 	 * If this percentage is not reclaimed, the node table will be grown.
@@ -62,8 +94,6 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 	private long totalResizeTime;
 
-	private final AtomicInteger hashCodeAuxCounter = new AtomicInteger();
-
 	/**
 	 * The number of resize operations performed so far.
 	 */
@@ -90,7 +120,12 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 	private ResizeListener resizeListener;
 
-	private final Object[] getLocks = new Object[1000];
+	/**
+	 * The locks that serialize the creation of nodes. They are a power of two,
+	 * so that buckets that differ by a multiple of their number share the lock.
+	 */
+
+	private final Object[] getLocks = new Object[1024];
 
 	private final ReentrantLock[] gcLocks = new ReentrantLock[5000];
 
@@ -98,6 +133,48 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 	private int nextGCLocks;
 
+	private final static VarHandle NEXT_POS;
+
+	static {
+		try {
+			NEXT_POS = MethodHandles.lookup().findVarHandle(SimpleUniqueTable.class, "nextPos", int.class);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * The maximal number of node slots that a thread reserves at a time.
+	 */
+
+	private final static int MAX_CHUNK_SIZE = 4096;
+
+	private final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private final ThreadLocal<Chunk> chunks = ThreadLocal.withInitial(Chunk::new);
+
+	/**
+	 * The chunks reserved since the last garbage collection, whose unused
+	 * slots do not hold nodes, although they lie before {@code nextPos}.
+	 */
+
+	private final Queue<Chunk> liveChunks = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Incremented at each garbage collection, that invalidates all chunks.
+	 */
+
+	private volatile int epoch;
+
+	/**
+	 * True if the factory refers to nodes through complement edges, so that
+	 * branches and ids hold a node position shifted left by one, whose least
+	 * significant bit is a negation.
+	 */
+
+	private volatile boolean complementEdges;
+
 	ResizingAndGarbageCollectedUniqueTable(int size, int cacheSize, Factory factory) {
 		super(size, cacheSize);
 
@@ -114,7 +191,7 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 	}
 
 	@Override
-	public final int get(int var, int low, int high) {
+	public int get(int var, int low, int high) {
 		do {
 			int size = this.size, pos = hash(var, low, high, size);
 
@@ -123,7 +200,7 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 				return result;
 
 			Object myLock;
-			synchronized (myLock = getLocks[pos % getLocks.length]) {
+			synchronized (myLock = getLock(pos)) {
 				// if the size changed, it means that a resize occurred while
 				// we were trying to access the critical section: in that case
 				// we have to recompute the hashcode, since it might have changed
@@ -134,6 +211,76 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		while (true);
 	}
 
+	/**
+	 * Looks the nodes up in three passes: first all hash codes, then all heads
+	 * of their buckets, finally the collision chains. The loads of each pass do
+	 * not depend on each other, hence the CPU can overlap their cache misses.
+	 * Only the nodes that are not found take the usual, locked path.
+	 */
+
+	@Override
+	public void getAll(int[] vars, int[] lows, int[] highs, int[] out) {
+		int[] H = this.H;
+		int size = this.size, length = vars.length;
+
+		for (int i = 0; i < length; i++)
+			out[i] = hash(vars[i], lows[i], highs[i], size);
+
+		// a concurrent resize might have changed the hash table: in that
+		// case we just miss some nodes, that are looked up again below
+		for (int i = 0; i < length; i++) {
+			int pos = out[i];
+			out[i] = pos < H.length ? H[pos] : -1;
+		}
+
+		for (int i = 0; i < length; i++) {
+			int var = vars[i], low = lows[i], high = highs[i], bin = out[i];
+
+			while (bin >= 0 && !isVarLowHigh(bin, var, low, high))
+				bin = next(bin);
+
+			out[i] = bin >= 0 ? bin : get(var, low, high);
+		}
+	}
+
+	/**
+	 * @return the lock that guards the given bucket of the hash table
+	 */
+
+	protected final Object getLock(int pos) {
+		return getLocks[pos & (getLocks.length - 1)];
+	}
+
+	/**
+	 * States that the factory refers to nodes through complement edges.
+	 * This must be called before any node is created.
+	 */
+
+	void setComplementEdges() {
+		this.complementEdges = true;
+	}
+
+	/**
+	 * @param id a reference to a node, possibly a complement edge
+	 * @return the position of the referenced node
+	 */
+
+	protected final int nodeOf(int id) {
+		return complementEdges ? id >>> 1 : id;
+	}
+
+	/**
+	 * Translates a reference to a node after compaction.
+	 *
+	 * @param newPositions the new position of each node
+	 * @param id a reference to a node, possibly a complement edge
+	 * @return the new reference, with the same negation, if any
+	 */
+
+	protected final int relocate(int[] newPositions, int id) {
+		return complementEdges ? newPositions[id >>> 1] << 1 | (id & 1) : newPositions[id];
+	}
+
 	public ReentrantLock getGCLock() {
 		return gcLocks[nextGCLocks = (nextGCLocks + 1) % gcLocks.length];
 	}
@@ -179,8 +326,6 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 			}
 	}
 
-	private final Object nextPosLock = new Object();
-
 	private final Object resizeInProgressLock = new Object();
 	private volatile boolean resizeInProgress;
 
@@ -189,14 +334,10 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 	private int nextPos(Object myLock) {
 		while (true) {
-			// size cannot increase here, since resize is not allowed when a thread is here
-			int size = getSize();
-	
-			synchronized (nextPosLock) {
-				if (nextPos < size)
-					return nextPos++;
-			}
-	
+			Chunk chunk = currentChunk();
+			if (chunk != null)
+				return chunk.next++;
+
 			if (!isResizeInProgress())
 				resize();
 			else
@@ -208,7 +349,71 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		}
 	}
 
-	private boolean isResizeInProgress() {
+	/**
+	 * A range of node slots reserved by a single thread, that allocates
+	 * from it without synchronization.
+	 */
+
+	protected static class Chunk {
+
+		/**
+		 * The next free slot of the chunk.
+		 */
+
+		protected int next;
+
+		private int end;
+
+		private int epoch = -1;
+	}
+
+	/**
+	 * Returns the chunk of the current thread, reserving a new one if it is
+	 * exhausted or if it has been invalidated by a garbage collection.
+	 * Callers must exclude resize while they use the chunk.
+	 *
+	 * @return the chunk, with at least a free slot, or null if the table is full
+	 */
+
+	protected final Chunk currentChunk() {
+		Chunk chunk = chunks.get();
+		if (chunk.next < chunk.end && chunk.epoch == epoch)
+			return chunk;
+
+		int epoch = this.epoch;
+
+		while (true) {
+			int size = this.size, start = nextPos, free = size - start;
+			if (free <= 0)
+				return null;
+
+			// we do not let a few threads steal all the free slots of a small table
+			int length = Math.max(1, Math.min(MAX_CHUNK_SIZE, free / (4 * PARALLELISM)));
+			if (NEXT_POS.compareAndSet(this, start, start + length)) {
+				// slots that are never used must look invalid to updateHashTable()
+				for (int node = start; node < start + length; node++)
+					invalidate(node);
+
+				if (chunk.epoch != epoch)
+					liveChunks.add(chunk);
+
+				chunk.next = start;
+				chunk.end = start + length;
+				chunk.epoch = epoch;
+
+				return chunk;
+			}
+		}
+	}
+
+	/**
+	 * Claims the right to resize this table.
+	 *
+	 * @return true if another thread is already resizing the table, false if
+	 *         the caller has claimed the resize and must perform it
+	 */
+
+	protected final boolean isResizeInProgress() {
 		synchronized (resizeInProgressLock) {
 			if (resizeInProgress)
 				return true;
@@ -219,7 +424,15 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		}
 	}
 
-	private void resize() {
+	/**
+	 * @return true if and only if a resize is currently running or claimed
+	 */
+
+	protected final boolean resizeRunning() {
+		return resizeInProgress;
+	}
+
+	protected void resize() {
 		// we precompute as much as we can outside the critical section
 		ResizeData data = new ResizeData(this);
 
@@ -252,7 +465,33 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		table[pos++] = lowNode;
 		table[pos++] = highNode;
 		table[pos++] = -1;
-		table[pos] = hashCodeAuxCounter.getAndIncrement();
+		table[pos] = identityOf(where);
+	}
+
+	/**
+	 * @return true if the hash code of a node is stored in the node, so that
+	 *         reading it is cheap and it survives garbage collection
+	 */
+
+	protected boolean storesHashCodes() {
+		return true;
+	}
+
+	/**
+	 * Yields the auxiliary hash code of a node created at the given slot.
+	 * No other node created since the last garbage collection has been
+	 * created at that slot, hence it identifies the node without a counter
+	 * shared by all threads, that would be contended at each creation.
+	 * A node keeps its identity when garbage collection moves it, so that
+	 * a node created later at the same slot might get the same one: this
+	 * only spreads hash codes a little less, they stay consistent.
+	 *
+	 * @param slot the slot where the node is created
+	 * @return the identity of the node
+	 */
+
+	protected static int identityOf(int slot) {
+		return slot;
 	}
 
 	@Override
@@ -325,7 +564,7 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 		GarbageCollectionListener listener = gcListener;
 		if (listener != null)
-			listener.onStart(numOfGCs, size, size - nextPos, totalGCTime);
+			listener.onStart(numOfGCs, size, size - nodesCount(), totalGCTime);
 
 		// find live nodes and compact the unique table
 		boolean[] aliveNodes = new boolean[size];
@@ -345,7 +584,7 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 		listener = gcListener;
 		if (listener != null)
-			listener.onStop(numOfGCs, size, size - nextPos, gcTime, totalGCTime);
+			listener.onStop(numOfGCs, size, size - nodesCount(), gcTime, totalGCTime);
 
 		for (ReentrantLock lock: gcLocks)
 			lock.unlock();
@@ -353,6 +592,23 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		return collected > nextPos * minFreeNodes;
 	}
 
+	/**
+	 * Yields the number of nodes in this table. The slots reserved by threads
+	 * but still unused are not counted. Since other threads might be allocating
+	 * from their chunks, the result is only approximate, unless all locks are held.
+	 */
+
+	@Override
+	public int nodesCount() {
+		int count = nextPos, epoch = this.epoch;
+
+		for (Chunk chunk: liveChunks)
+			if (chunk.epoch == epoch)
+				count -= chunk.end - chunk.next;
+
+		return count;
+	}
+
 	protected void scheduleGC() {
 		this.gcRequired = true;
 	}
@@ -403,6 +659,71 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		return oldCacheRatio;
 	}
 
+	/**
+	 * Determines if the sizes of the caches follow their misses at each resize.
+	 * Rebalancing needs the lookups into the caches to be counted.
+	 *
+	 * @param cacheRebalancing true if and only if the caches must be rebalanced
+	 * @return the old setting
+	 */
+
+	protected boolean setCacheRebalancing(boolean cacheRebalancing) {
+		boolean oldCacheRebalancing = this.cacheRebalancing;
+		this.cacheRebalancing = cacheRebalancing;
+		if (cacheRebalancing)
+			setCacheStatistics(true);
+
+		return oldCacheRebalancing;
+	}
+
+	/**
+	 * Determines if the entries of the caches survive garbage collection.
+	 *
+	 * @param cacheRemapping true if and only if the entries must be kept
+	 * @return the old setting
+	 */
+
+	protected boolean setCacheRemapping(boolean cacheRemapping) {
+		boolean oldCacheRemapping = this.cacheRemapping;
+		this.cacheRemapping = cacheRemapping;
+
+		return oldCacheRemapping;
+	}
+
+	/**
+	 * Computes the shares of the caches after a resize and restarts their
+	 * statistics. With rebalancing, a part of the total share keeps the
+	 * configured layout and the rest is split in proportion to the misses
+	 * of each cache since the last resize.
+	 *
+	 * @return the shares, indexed by the ordinal of their cache
+	 */
+
+	private double[] sharesForResize() {
+		double[] shares = getCacheShares();
+
+		if (cacheRebalancing) {
+			OperationCache[] caches = OperationCache.values();
+			long[] misses = new long[caches.length];
+			long totalMisses = 0;
+			for (OperationCache cache: caches)
+				totalMisses += misses[cache.ordinal()] = getLookups(cache) - getHits(cache);
+
+			if (totalMisses > 0) {
+				double budget = 0.0;
+				for (double share: shares)
+					budget += share;
+
+				for (int pos = 0; pos < shares.length; pos++)
+					shares[pos] = (1.0 - REBALANCED_SHARE) * shares[pos] + REBALANCED_SHARE * budget * misses[pos] / totalMisses;
+			}
+		}
+
+		resetCacheStatistics();
+
+		return shares;
+	}
+
 	/**
 	 * Sets the minimum percentage of nodes to be reclaimed after a garbage collection.
 	 * If this percentage is not reclaimed, the node table will be grown.
@@ -425,25 +746,20 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 		private final int newSize;
 		private final int[] newH;
 		private final int[] newUt;
-		private final ComputationCache computationCache;
-		private final RestrictCache restrictCache;
-		private final ComposeCache composeCache;
-		private final QuantCache quantCache;
-		private final ReplaceCache replaceCache;
-		private final EquivCache equivCache;
-		private final RenameWithLeaderCache rwlCache;
-		private final SqueezeEquivCache squeezeEquivCache;
+		private final Caches caches;
 
 		private ResizeData(ResizingAndGarbageCollectedUniqueTable table) {
 			start = System.currentTimeMillis();
 			oldSize = table.getSize();
-			if(oldSize == MAX_SIZE){
-				throw new RuntimeException("BDD table cannot be enlarged beyond max size: " + MAX_SIZE);
+			// complement edges need a bit of the int for the negation
+			int maxSize = table.complementEdges ? Math.min(table.maxSize(), Integer.MAX_VALUE >>> 1) : table.maxSize();
+			if(oldSize == maxSize){
+				throw new RuntimeException("BDD table cannot be enlarged beyond max size: " + maxSize);
 			}
 			int newSizeTemp = oldSize * (table.increaseFactor - 1) > table.maxIncrease
 				? oldSize + table.maxIncrease : (int) (oldSize * table.increaseFactor);
 			//SEE: comment on SimpleUniqueTable.MAX_SIZE
-			newSize = Math.min(MAX_SIZE, newSizeTemp);
+			newSize = newSizeTemp < 0 ? maxSize : Math.min(maxSize, newSizeTemp);
 
 			int oldCacheSize = table.getCacheSize();
 			int newCacheSize = newSize * table.cacheRatio > oldCacheSize ?
@@ -453,43 +769,184 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 			if (listener != null)
 				listener.onStart(table.numOfResizes, oldSize, newSize, table.totalResizeTime);
 
-			newH = new int[newSize];
+			newH = new int[table.hashTableSize(newSize)];
 			for (int i = newH.length - 1; i >= 0; i--)
 				newH[i] = -1;
 
-			newUt = new int[newSize * table.getNodeSize()];
-
-			int sizeOfSmallCaches = Math.max(1, newCacheSize / 20);
-			computationCache = new ComputationCache(newCacheSize);
-			restrictCache = new RestrictCache(sizeOfSmallCaches);
-			composeCache = new ComposeCache(sizeOfSmallCaches);
-			replaceCache = new ReplaceCache(sizeOfSmallCaches);
-			quantCache = new QuantCache(sizeOfSmallCaches);
-			equivCache = new EquivCache(sizeOfSmallCaches);
-			rwlCache = new RenameWithLeaderCache(sizeOfSmallCaches);
-			squeezeEquivCache = new SqueezeEquivCache(sizeOfSmallCaches);
+			newUt = table.allocateNodes(newSize);
+
+			caches = new Caches(table, newCacheSize, table.sharesForResize());
+		}
+	}
+
+	/**
+	 * A new set of operator caches, that replaces the current one.
+	 */
+
+	private static class Caches {
+		private final int cacheSize;
+		private final int[] cacheSizes;
+		private final ComputationCache computationCache;
+		private final RestrictCache restrictCache;
+		private final ComposeCache composeCache;
+		private final IteCache iteCache;
+		private final RelProdCache relProdCache;
+		private final QuantifiedApplyCache quantifiedApplyCache;
+		private final QuantCache quantCache;
+		private final ReplaceCache replaceCache;
+		private final EquivCache equivCache;
+		private final RenameWithLeaderCache rwlCache;
+		private final SqueezeEquivCache squeezeEquivCache;
+
+		private Caches(ResizingAndGarbageCollectedUniqueTable table, int cacheSize, double[] shares) {
+			this.cacheSize = cacheSize;
+			cacheSizes = new int[shares.length];
+			for (OperationCache cache: OperationCache.values())
+				cacheSizes[cache.ordinal()] = sizeOfCache(cache, cacheSize, shares);
+
+			computationCache = table.getComputationCacheKind().mk(cacheSizes[OperationCache.APPLY.ordinal()]);
+			restrictCache = new RestrictCache(cacheSizes[OperationCache.RESTRICT.ordinal()]);
+			composeCache = new ComposeCache(cacheSizes[OperationCache.COMPOSE.ordinal()]);
+			iteCache = new IteCache(cacheSizes[OperationCache.ITE.ordinal()]);
+			relProdCache = new RelProdCache(cacheSizes[OperationCache.RELPROD.ordinal()]);
+			quantifiedApplyCache = new QuantifiedApplyCache(cacheSizes[OperationCache.QUANTIFIED_APPLY.ordinal()]);
+			replaceCache = new ReplaceCache(cacheSizes[OperationCache.REPLACE.ordinal()]);
+			quantCache = new QuantCache(cacheSizes[OperationCache.QUANT.ordinal()]);
+			equivCache = new EquivCache(cacheSizes[OperationCache.EQUIV.ordinal()]);
+			rwlCache = new RenameWithLeaderCache(cacheSizes[OperationCache.RENAME_WITH_LEADER.ordinal()]);
+			squeezeEquivCache = new SqueezeEquivCache(cacheSizes[OperationCache.SQUEEZE_EQUIV.ordinal()]);
 		}
 	}
 
 	private void innerResize(ResizeData data) {
-		System.arraycopy(ut, 0, data.newUt, 0, nextPos * getNodeSize());
+		int[] previousH = this.H;
+		installNodes(data.newUt);
+		migrateCaches(data.caches);
 
 		// TODO is this instruction order mandatory according to the JMM?
-		this.ut = data.newUt;
 		this.H = data.newH;
 		this.size = data.newSize;
-		this.computationCache = data.computationCache;
-		this.restrictCache = data.restrictCache;
-		this.composeCache = data.composeCache;
-		this.replaceCache = data.replaceCache;
-		this.quantCache = data.quantCache;
-		this.equivCache = data.equivCache;
-		this.rwlCache = data.rwlCache;
-		this.squeezeEquivCache = data.squeezeEquivCache;
+		installCaches(data.caches);
+
+		rehashAfterResize(previousH);
+	}
+
+	private void installCaches(Caches caches) {
+		this.cacheSize = caches.cacheSize;
+		this.cacheSizes = caches.cacheSizes;
+		this.computationCache = caches.computationCache;
+		this.restrictCache = caches.restrictCache;
+		this.composeCache = caches.composeCache;
+		this.iteCache = caches.iteCache;
+		this.relProdCache = caches.relProdCache;
+		this.quantifiedApplyCache = caches.quantifiedApplyCache;
+		this.replaceCache = caches.replaceCache;
+		this.quantCache = caches.quantCache;
+		this.equivCache = caches.equivCache;
+		this.rwlCache = caches.rwlCache;
+		this.squeezeEquivCache = caches.squeezeEquivCache;
+	}
+
+	/**
+	 * Changes the cache size, keeping the shares of the caches. The entries
+	 * of the current caches are copied into the new ones, as far as they fit.
+	 * All other operations are stopped meanwhile, hence the caller must not
+	 * hold a lock against garbage collection.
+	 *
+	 * @param cacheSize the new cache size
+	 */
+
+	void setCacheSize(int cacheSize) {
+		// we allocate the caches outside the critical section
+		Caches caches = new Caches(this, cacheSize, getCacheShares());
+
+		for (ReentrantLock lock: gcLocks)
+			lock.lock();
+
+		try {
+			migrateCaches(caches);
+			installCaches(caches);
+		}
+		finally {
+			for (ReentrantLock lock: gcLocks)
+				lock.unlock();
+		}
+	}
+
+	/**
+	 * Copies the entries of the current caches into new caches. Nodes keep
+	 * their index during a resize, hence all entries stay valid. Large caches
+	 * are split into chunks, copied in parallel. This is called while holding
+	 * all the locks.
+	 *
+	 * @param data the new caches
+	 */
+
+	private void migrateCaches(Caches data) {
+		int[] sizes = cacheSizes;
+		List<Runnable> copiers = new ArrayList<>();
+		long entries = 0;
+
+		for (OperationCache cache: OperationCache.values()) {
+			int size = sizes[cache.ordinal()];
+			entries += size;
+
+			for (int from = 0; from < size; from += MIGRATION_CHUNK)
+				copiers.add(copier(cache, data, from, Math.min(size, from + MIGRATION_CHUNK)));
+		}
+
+		if (entries >= 600000) {
+			try {
+				pool.submit(() -> copiers.parallelStream().forEach(Runnable::run)).get();
+			}
+			catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		else
+			copiers.forEach(Runnable::run);
+	}
+
+	private Runnable copier(OperationCache cache, Caches data, int from, int to) {
+		switch (cache) {
+		case APPLY: return () -> computationCache.copyTo(data.computationCache, from, to);
+		case RESTRICT: return () -> restrictCache.copyTo(data.restrictCache, from, to);
+		case COMPOSE: return () -> composeCache.copyTo(data.composeCache, from, to);
+		case ITE: return () -> iteCache.copyTo(data.iteCache, from, to);
+		case RELPROD: return () -> relProdCache.copyTo(data.relProdCache, from, to);
+		case QUANTIFIED_APPLY: return () -> quantifiedApplyCache.copyTo(data.quantifiedApplyCache, from, to);
+		case REPLACE: return () -> replaceCache.copyTo(data.replaceCache, from, to);
+		case QUANT: return () -> quantCache.copyTo(data.quantCache, from, to);
+		case EQUIV: return () -> equivCache.copyTo(data.equivCache, from, to);
+		case RENAME_WITH_LEADER: return () -> rwlCache.copyTo(data.rwlCache, from, to);
+		case SQUEEZE_EQUIV: return () -> squeezeEquivCache.copyTo(data.squeezeEquivCache, from, to);
+		default: throw new IllegalArgumentException("unknown cache " + cache);
+		}
+	}
+
+	/**
+	 * Fills the hash table after a resize. This is called while holding all the locks.
+	 *
+	 * @param previousH the hash table before the resize
+	 */
 
+	protected void rehashAfterResize(int[] previousH) {
 		updateHashTable();
 	}
 
+	/**
+	 * Copies the nodes created so far into storage obtained from
+	 * {@link #allocateNodes(int)}, that becomes the table of nodes.
+	 * This is called while holding all the locks.
+	 *
+	 * @param newUt the new storage
+	 */
+
+	protected void installNodes(int[] newUt) {
+		System.arraycopy(ut, 0, newUt, 0, nextPos * getNodeSize());
+		this.ut = newUt;
+	}
+
 	private void postResize(ResizeData data) {
 		long resizeTime = System.currentTimeMillis() - data.start;
 		totalResizeTime += resizeTime;
@@ -515,29 +972,35 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 			return;
 		}
 
-		for (int i = nextPos - 1, index = i * getNodeSize() + VAR_OFFSET; i >= 0; i--, index -= getNodeSize())
+		for (int i = nextPos - 1; i >= 0; i--) {
+			int var = var(i);
+
 			// we only consider valid entries
-			if (ut[index] >= 0) {
-				int pos = hash(ut[index], ut[index + 1], ut[index + 2]);
+			if (var >= 0) {
+				int pos = hash(var, low(i), high(i));
 
 				setNext(i, H[pos]);
 				H[pos] = i;
 			}
+		}
 	}
 
 	private final static int total = Runtime.getRuntime().availableProcessors();
 
 	private void updater(int offset) {
-		for (int i = nextPos - 1 - offset, index = i * getNodeSize() + VAR_OFFSET; i >= 0; i -= total, index -= getNodeSize() * total)
+		for (int i = nextPos - 1 - offset; i >= 0; i -= total) {
+			int var = var(i);
+
 			// we only consider valid entries
-			if (ut[index] >= 0) {
-				int pos = hash(ut[index], ut[index + 1], ut[index + 2]);
+			if (var >= 0) {
+				int pos = hash(var, low(i), high(i));
 
 				synchronized (updateLocks[pos % updateLocks.length]) {
 					setNext(i, H[pos]);
 					H[pos] = i;
 				}
 			}
+		}
 	}
 
 	int compactTable(boolean[] aliveNodes) {
@@ -546,35 +1009,76 @@ public class ResizingAndGarbageCollectedUniqueTable extends SimpleUniqueTable {
 
 		for (int oldCursor = 0, newCursor = 0; oldCursor < nextPos; oldCursor++)
 			if (aliveNodes[oldCursor]) {
-				// copy node to new position
-				if (collected > 0)
-					setVarLowHighHash(newCursor, var(oldCursor), newPositions[low(oldCursor)], newPositions[high(oldCursor)], hashCodeAux(oldCursor));
-
 				newPositions[oldCursor] = newCursor++;
 				aliveNodes[oldCursor] = false;
 			}
-			else
+			else {
+				newPositions[oldCursor] = -1;
 				collected++;
+			}
+
+		// threads allocate from their own chunks, hence a child might lie after
+		// its parent: nodes are moved only once all new positions are known
+		if (collected > 0)
+			for (int oldCursor = 0; oldCursor < nextPos; oldCursor++)
+				// terminals have no children and never move
+				if (newPositions[oldCursor] >= 0 && low(oldCursor) >= 0)
+					moveNode(oldCursor, newPositions[oldCursor], relocate(newPositions, low(oldCursor)), relocate(newPositions, high(oldCursor)));
 
 		// change indices of external BDD objects
 		factory.updateIndicesOfAllBDDsCreatedSoFar(newPositions);
 
-		synchronized (nextPosLock) {
-			nextPos -= collected;
+		// no thread is allocating here; the chunks reserved so far
+		// overlap the compacted nodes and must not be used anymore
+		nextPos -= collected;
+		epoch++;
+		liveChunks.clear();
+
+		if (cacheRemapping) {
+			// a collected node is relocated into a negative index
+			IntUnaryOperator relocation = id -> relocate(newPositions, id);
+			computationCache.remap(relocation);
+			restrictCache.remap(relocation);
+			composeCache.remap(relocation);
+			iteCache.remap(relocation);
+			relProdCache.remap(relocation);
+			quantifiedApplyCache.remap(relocation);
+			replaceCache.remap(relocation);
+			quantCache.remap(relocation);
+			equivCache.remap(relocation);
+			rwlCache.remap(relocation);
+			squeezeEquivCache.remap(relocation);
+		}
+		else {
+			computationCache.clear();
+			restrictCache.clear();
+			composeCache.clear();
+			iteCache.clear();
+			relProdCache.clear();
+			quantifiedApplyCache.clear();
+			replaceCache.clear();
+			quantCache.clear();
+			equivCache.clear();
+			rwlCache.clear();
+			squeezeEquivCache.clear();
 		}
-
-		computationCache.clear();
-		restrictCache.clear();
-		composeCache.clear();
-		replaceCache.clear();
-		quantCache.clear();
-		equivCache.clear();
-		rwlCache.clear();
-		squeezeEquivCache.clear();
 
 		return collected;
 	}
 
+	/**
+	 * Moves a node to a lower position during compaction, together with its identity.
+	 *
+	 * @param from the old position of the node
+	 * @param to the new position of the node
+	 * @param lowNode the new position of the low branch
+	 * @param highNode the new position of the high branch
+	 */
+
+	protected void moveNode(int from, int to, int lowNode, int highNode) {
+		setVarLowHighHash(to, var(from), lowNode, highNode, hashCodeAux(from));
+	}
+
 	protected void setVarLowHighHash(int node, int varNumber, int lowNode, int highNode, int hca) {
 		int pos = node * getNodeSize();
 
@@ -18,6 +18,8 @@
 */
 package com.juliasoft.beedeedee.factories;
 
+import java.util.function.IntUnaryOperator;
+
 /**
  * The cache for restrict operations.
  */
@@ -51,6 +53,42 @@ class RestrictCache {
 			cache[i] = -1;
 	}
 
+	/**
+	 * Translates the entries of this cache after a garbage collection.
+	 * Entries that refer to a collected node are dropped.
+	 * 
+	 * @param relocation maps each bdd index into its new index, or into
+	 *                   a negative value if its node has been collected
+	 */
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd = relocation.applyAsInt(old[i]), result = relocation.applyAsInt(old[i + 3]);
+				if (bdd >= 0 && result >= 0)
+					put(bdd, old[i + 1], old[i + 2] == 1, result);
+			}
+	}
+
+	/**
+	 * Copies the entries of this cache, between the given positions, into
+	 * another cache. This cache must not be modified in the meantime.
+	 * 
+	 * @param other the other cache
+	 * @param from the first entry that gets copied
+	 * @param to the entry after the last one that gets copied
+	 */
+	void copyTo(RestrictCache other, int from, int to) {
+		int[] cache = this.cache;
+
+		for (int i = from * ENTRY_SIZE; i < to * ENTRY_SIZE; i += ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.put(cache[i], cache[i + 1], cache[i + 2] == 1, cache[i + 3]);
+	}
+
 	/**
 	 * Gets an entry from this cache.
 	 * 
@@ -0,0 +1,65 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+/**
+ * A unique table whose nodes are kept in arrays of a fixed number of nodes
+ * each. Since a resize copies at most the nodes of a segment, it needs no
+ * room for two copies of all nodes.
+ */
+class SegmentedUniqueTable extends AbstractSegmentedUniqueTable<int[]> {
+
+	SegmentedUniqueTable(int size, int cacheSize, Factory factory) {
+		this(size, cacheSize, factory, DEFAULT_SEGMENT_BITS);
+	}
+
+	SegmentedUniqueTable(int size, int cacheSize, Factory factory, int segmentBits) {
+		super(size, cacheSize, factory, segmentBits);
+	}
+
+	@Override
+	protected int[][] newSegments(int count) {
+		return new int[count][];
+	}
+
+	@Override
+	protected int[] newSegment(int ints) {
+		return new int[ints];
+	}
+
+	@Override
+	protected int capacity(int[] segment) {
+		return segment.length;
+	}
+
+	@Override
+	protected void copy(int[] from, int[] to) {
+		System.arraycopy(from, 0, to, 0, from.length);
+	}
+
+	@Override
+	protected int read(int[] segment, int index) {
+		return segment[index];
+	}
+
+	@Override
+	protected void write(int[] segment, int index, int value) {
+		segment[index] = value;
+	}
+}
@@ -0,0 +1,170 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A cache for APPLY computations whose entries are grouped into sets of a
+ * few ways. An entry can live in any way of its set, hence two hot entries
+ * that map into the same set do not evict each other. The ways of a set are
+ * kept in order of recency: new entries enter the first way and push out
+ * the last one, and a hit moves its entry one way forward, which is a cheap
+ * approximation of least-recently-used replacement.
+ */
+class SetAssociativeComputationCache extends ComputationCache {
+	private final static int ENTRY_SIZE = 4;
+	private final static int DEFAULT_WAYS = 4;
+	private final int[] cache;
+	private final int size;
+	private final int ways;
+	private final int sets;
+	private final Object[] locks = new Object[1000];
+
+	/**
+	 * Constructs a 4-way SetAssociativeComputationCache of the given size.
+	 * 
+	 * @param size the size of the cache
+	 */
+	SetAssociativeComputationCache(int size) {
+		this(size, DEFAULT_WAYS);
+	}
+
+	/**
+	 * Constructs a SetAssociativeComputationCache of the given size.
+	 * 
+	 * @param size the size of the cache
+	 * @param ways the number of entries in each set
+	 */
+	SetAssociativeComputationCache(int size, int ways) {
+		this.size = size;
+		this.ways = ways;
+		this.sets = Math.max(1, (size + ways - 1) / ways);
+		this.cache = new int[sets * ways * ENTRY_SIZE];
+		clear();
+
+		for (int pos = 0; pos < locks.length; pos++)
+			locks[pos] = new Object();
+	}
+
+	@Override
+	void clear() {
+		for (int i = 0; i < cache.length; i += ENTRY_SIZE)
+			cache[i] = -1;
+	}
+
+	@Override
+	void copyTo(ComputationCache other, int from, int to) {
+		int[] cache = this.cache;
+		// the last chunk also copies the entries beyond the size, in the last set
+		int end = to >= size ? cache.length : to * ENTRY_SIZE;
+
+		// the last ways are copied first, so that the order of recency is kept
+		for (int i = end - ENTRY_SIZE; i >= from * ENTRY_SIZE; i -= ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.store(cache[i], cache[i + 1], cache[i + 2], cache[i + 3]);
+	}
+
+	@Override
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other sets, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = old.length - ENTRY_SIZE; i >= 0; i -= ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd1 = relocation.applyAsInt(old[i + 1]), bdd2 = relocation.applyAsInt(old[i + 2]);
+				int result = relocation.applyAsInt(old[i + 3]);
+				if (bdd1 >= 0 && bdd2 >= 0 && result >= 0)
+					store(old[i], bdd1, bdd2, result);
+			}
+	}
+
+	@Override
+	protected int lookup(int ordinal, int bdd1, int bdd2) {
+		int set = setOf(ordinal, bdd1, bdd2), start = set * ways * ENTRY_SIZE;
+		int[] cache = this.cache;
+
+		for (int pos = start, end = start + ways * ENTRY_SIZE; pos < end; pos += ENTRY_SIZE)
+			if (cache[pos + 1] == bdd1 && cache[pos + 2] == bdd2 && cache[pos] == ordinal)
+				synchronized (locks[set % locks.length]) {
+					// the entry might have moved to another way in the meantime
+					return lookupAndPromote(start, ordinal, bdd1, bdd2);
+				}
+
+		return -1;
+	}
+
+	/**
+	 * Looks for an entry in a set and moves it one way forward.
+	 * The caller must hold the lock of the set.
+	 */
+
+	private int lookupAndPromote(int start, int ordinal, int bdd1, int bdd2) {
+		int[] cache = this.cache;
+
+		for (int pos = start, end = start + ways * ENTRY_SIZE; pos < end; pos += ENTRY_SIZE)
+			if (cache[pos + 1] == bdd1 && cache[pos + 2] == bdd2 && cache[pos] == ordinal) {
+				int result = cache[pos + 3];
+
+				if (pos > start) {
+					int previous = pos - ENTRY_SIZE;
+					for (int offset = 0; offset < ENTRY_SIZE; offset++) {
+						int temp = cache[pos + offset];
+						cache[pos + offset] = cache[previous + offset];
+						cache[previous + offset] = temp;
+					}
+				}
+
+				return result;
+			}
+
+		return -1;
+	}
+
+	@Override
+	protected void store(int ordinal, int bdd1, int bdd2, int result) {
+		int set = setOf(ordinal, bdd1, bdd2), start = set * ways * ENTRY_SIZE, end = start + ways * ENTRY_SIZE;
+		int[] cache = this.cache;
+
+		synchronized (locks[set % locks.length]) {
+			for (int pos = start; pos < end; pos += ENTRY_SIZE)
+				if (cache[pos + 1] == bdd1 && cache[pos + 2] == bdd2 && cache[pos] == ordinal) {
+					cache[pos + 3] = result;
+					return;
+				}
+
+			// the last way gets evicted
+			System.arraycopy(cache, start, cache, start + ENTRY_SIZE, (ways - 1) * ENTRY_SIZE);
+			cache[start] = ordinal;
+			cache[start + 1] = bdd1;
+			cache[start + 2] = bdd2;
+			cache[start + 3] = result;
+		}
+	}
+
+	@Override
+	int getSize() {
+		return size;
+	}
+
+	private int setOf(int ordinal, int bdd1, int bdd2) {
+		return (OpenAddressingUniqueTable.mix(ordinal, bdd1, bdd2) & Integer.MAX_VALUE) % sets;
+	}
+}
@@ -19,6 +19,7 @@
 package com.juliasoft.beedeedee.factories;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
 class SimpleUniqueTable implements UniqueTable {
 
@@ -41,31 +42,68 @@ class SimpleUniqueTable implements UniqueTable {
 	protected volatile int size;
 	protected volatile int nextPos;
 	protected volatile ComputationCache computationCache;
+	private ComputationCacheKind computationCacheKind = ComputationCacheKind.SYNCHRONIZED;
 	protected volatile RestrictCache restrictCache;
 	protected volatile ComposeCache composeCache;
+	protected volatile IteCache iteCache;
+	protected volatile RelProdCache relProdCache;
+	protected volatile QuantifiedApplyCache quantifiedApplyCache;
 	protected volatile ReplaceCache replaceCache;
 	protected volatile QuantCache quantCache;
 	protected volatile EquivCache equivCache;
 	protected volatile RenameWithLeaderCache rwlCache;
 	protected volatile SqueezeEquivCache squeezeEquivCache;
 
-	private final int[] hitCounters = new int[Operator.values().length];
-	private final int[] opCounters = new int[hitCounters.length];
+	protected volatile int cacheSize;
+
+	/**
+	 * The share of {@link #cacheSize} taken by each cache, indexed by the
+	 * ordinal of its {@link OperationCache}.
+	 */
+
+	private final double[] cacheShares = new double[OperationCache.values().length];
+
+	/**
+	 * The number of entries of each cache, indexed by the ordinal of its {@link OperationCache}.
+	 */
+
+	protected volatile int[] cacheSizes = new int[cacheShares.length];
+
+	/**
+	 * The number of lookups and hits of each cache since the last resize,
+	 * indexed by the ordinal of its {@link OperationCache}. The lookups of
+	 * {@link OperationCache#APPLY} are counted per operator, instead.
+	 */
+
+	private final LongAdder[] cacheLookups = newCounters(cacheShares.length);
+	private final LongAdder[] cacheHits = newCounters(cacheShares.length);
+
+	private final LongAdder[] hitCounters = newCounters(Operator.values().length);
+	private final LongAdder[] opCounters = newCounters(hitCounters.length);
+
+	/**
+	 * The number of APPLY subproblems computed without looking into the cache.
+	 */
+
+	private final LongAdder skippedLookups = new LongAdder();
+
+	/**
+	 * True if the lookups into the caches are counted. Counting costs
+	 * on the hottest path, hence it is only done when somebody reads the counts.
+	 */
+
+	private volatile boolean cacheStatistics;
 	protected int hashCodeAuxCounter;
 
 	protected SimpleUniqueTable(int size, int cacheSize) {
-		this.size = Math.min(size, MAX_SIZE);
-		this.ut = new int[this.size * getNodeSize()];
-		this.H = new int[this.size];
-		this.computationCache = new ComputationCache(cacheSize);
-		int sizeOfSmallCaches = Math.max(1, cacheSize / 20);
-		this.restrictCache = new RestrictCache(sizeOfSmallCaches);
-		this.composeCache = new ComposeCache(sizeOfSmallCaches);
-		this.replaceCache = new ReplaceCache(sizeOfSmallCaches);
-		this.quantCache = new QuantCache(sizeOfSmallCaches);
-		this.equivCache = new EquivCache(sizeOfSmallCaches);
-		this.rwlCache = new RenameWithLeaderCache(sizeOfSmallCaches);
-		this.squeezeEquivCache = new SqueezeEquivCache(sizeOfSmallCaches);
+		this.size = Math.min(size, maxSize());
+		this.ut = allocateNodes(this.size);
+		this.H = new int[hashTableSize(this.size)];
+		this.cacheSize = cacheSize;
+		for (OperationCache cache: OperationCache.values()) {
+			cacheShares[cache.ordinal()] = cache.defaultShare;
+			allocateCache(cache, sizeOfCache(cache, cacheSize, cacheShares));
+		}
 
 		Arrays.parallelSetAll(H, _value -> -1);
 	}
@@ -74,6 +112,227 @@ class SimpleUniqueTable implements UniqueTable {
 		return NODE_SIZE;
 	}
 
+	/**
+	 * Returns the maximal number of nodes that this table can hold.
+	 * This is called from the constructor.
+	 *
+	 * @return the maximal number of nodes
+	 */
+	protected int maxSize() {
+		return MAX_SIZE;
+	}
+
+	/**
+	 * Allocates the storage for a table of nodes of the given size.
+	 * This is called from the constructor.
+	 *
+	 * @param size the number of nodes
+	 * @return the array that will become {@link #ut}
+	 */
+	protected int[] allocateNodes(int size) {
+		return new int[size * getNodeSize()];
+	}
+
+	/**
+	 * Returns the number of buckets of the hash table for a table of nodes
+	 * of the given size. This is called from the constructor.
+	 *
+	 * @param size the number of nodes
+	 * @return the number of buckets
+	 */
+	protected int hashTableSize(int size) {
+		return size;
+	}
+
+	/**
+	 * Sets the implementation of the cache of APPLY computations, also
+	 * after a resize. This must be called before the cache is used.
+	 *
+	 * @param computationCacheKind the implementation
+	 */
+	void setComputationCacheKind(ComputationCacheKind computationCacheKind) {
+		if (computationCacheKind != this.computationCacheKind) {
+			this.computationCacheKind = computationCacheKind;
+			allocateCache(OperationCache.APPLY, sizeOfCache(OperationCache.APPLY, cacheSize, cacheShares));
+		}
+	}
+
+	ComputationCacheKind getComputationCacheKind() {
+		return computationCacheKind;
+	}
+
+	private static LongAdder[] newCounters(int length) {
+		LongAdder[] counters = new LongAdder[length];
+		for (int pos = 0; pos < length; pos++)
+			counters[pos] = new LongAdder();
+
+		return counters;
+	}
+
+	/**
+	 * Sets the share of the cache size taken by the given cache. The cache
+	 * is reallocated with its new size, hence it starts empty. The caller
+	 * must exclude garbage collection.
+	 *
+	 * @param cache the cache
+	 * @param share the share
+	 * @return the old share
+	 */
+	double setCacheShare(OperationCache cache, double share) {
+		double oldShare = cacheShares[cache.ordinal()];
+		cacheShares[cache.ordinal()] = share;
+		allocateCache(cache, sizeOfCache(cache, cacheSize, cacheShares));
+
+		return oldShare;
+	}
+
+	/**
+	 * @return a copy of the shares of the cache size, indexed by the ordinal of their cache
+	 */
+	protected final double[] getCacheShares() {
+		return cacheShares.clone();
+	}
+
+	/**
+	 * Computes the number of entries of a cache.
+	 *
+	 * @param cache the cache
+	 * @param cacheSize the cache size of the table
+	 * @param shares the shares of the caches, indexed by the ordinal of their cache
+	 * @return the number of entries
+	 */
+	protected static int sizeOfCache(OperationCache cache, int cacheSize, double[] shares) {
+		return Math.max(1, (int) (cacheSize * shares[cache.ordinal()]));
+	}
+
+	/**
+	 * @return the approximate number of bytes that the caches take for each
+	 *         unit of the cache size
+	 */
+	final double getBytesPerCacheSize() {
+		double bytes = 0.0;
+		for (OperationCache cache: OperationCache.values())
+			bytes += cacheShares[cache.ordinal()] * cache.entryBytes;
+
+		return bytes;
+	}
+
+	/**
+	 * @param cache a cache
+	 * @return the number of entries of the cache
+	 */
+	final int getCacheSize(OperationCache cache) {
+		return cacheSizes[cache.ordinal()];
+	}
+
+	private void allocateCache(OperationCache cache, int size) {
+		cacheSizes[cache.ordinal()] = size;
+
+		switch (cache) {
+		case APPLY: computationCache = computationCacheKind.mk(size); break;
+		case RESTRICT: restrictCache = new RestrictCache(size); break;
+		case COMPOSE: composeCache = new ComposeCache(size); break;
+		case ITE: iteCache = new IteCache(size); break;
+		case RELPROD: relProdCache = new RelProdCache(size); break;
+		case QUANTIFIED_APPLY: quantifiedApplyCache = new QuantifiedApplyCache(size); break;
+		case REPLACE: replaceCache = new ReplaceCache(size); break;
+		case QUANT: quantCache = new QuantCache(size); break;
+		case EQUIV: equivCache = new EquivCache(size); break;
+		case RENAME_WITH_LEADER: rwlCache = new RenameWithLeaderCache(size); break;
+		case SQUEEZE_EQUIV: squeezeEquivCache = new SqueezeEquivCache(size); break;
+		}
+	}
+
+	/**
+	 * Records a lookup into a cache, for the statistics that drive the
+	 * rebalancing of the caches. The lookups of {@link OperationCache#APPLY}
+	 * are recorded by {@link #getFromCache(Operator, int, int)} already.
+	 *
+	 * @param cache the cache
+	 * @param hit true if and only if the lookup found a result
+	 */
+	final void recordLookup(OperationCache cache, boolean hit) {
+		if (cacheStatistics) {
+			cacheLookups[cache.ordinal()].increment();
+			if (hit)
+				cacheHits[cache.ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Records an APPLY subproblem computed without looking into the cache.
+	 */
+	final void recordSkippedLookup() {
+		if (cacheStatistics)
+			skippedLookups.increment();
+	}
+
+	/**
+	 * Determines if the lookups into the caches are counted.
+	 *
+	 * @param cacheStatistics true if and only if the lookups must be counted
+	 * @return the old setting
+	 */
+	final boolean setCacheStatistics(boolean cacheStatistics) {
+		boolean oldCacheStatistics = this.cacheStatistics;
+		this.cacheStatistics = cacheStatistics;
+
+		return oldCacheStatistics;
+	}
+
+	/**
+	 * @return the number of APPLY subproblems computed without looking
+	 *         into the cache, since the last resize
+	 */
+	final long getSkippedLookups() {
+		return skippedLookups.sum();
+	}
+
+	/**
+	 * @param cache a cache
+	 * @return the number of lookups into the cache since the last resize
+	 */
+	final long getLookups(OperationCache cache) {
+		if (cache != OperationCache.APPLY)
+			return cacheLookups[cache.ordinal()].sum();
+
+		long lookups = 0;
+		for (LongAdder counter: opCounters)
+			lookups += counter.sum();
+
+		return lookups;
+	}
+
+	/**
+	 * @param cache a cache
+	 * @return the number of lookups into the cache that found a result, since the last resize
+	 */
+	final long getHits(OperationCache cache) {
+		if (cache != OperationCache.APPLY)
+			return cacheHits[cache.ordinal()].sum();
+
+		long hits = 0;
+		for (LongAdder counter: hitCounters)
+			hits += counter.sum();
+
+		return hits;
+	}
+
+	/**
+	 * Clears the statistics of the caches.
+	 */
+	protected final void resetCacheStatistics() {
+		for (LongAdder counter: cacheLookups)
+			counter.reset();
+		for (LongAdder counter: cacheHits)
+			counter.reset();
+		for (LongAdder counter: opCounters)
+			counter.reset();
+		for (LongAdder counter: hitCounters)
+			counter.reset();
+		skippedLookups.reset();
+	}
+
 	@Override
 	public final int getSize() {
 		return size;
@@ -81,20 +340,37 @@ class SimpleUniqueTable implements UniqueTable {
 
 	@Override
 	public final int getCacheSize() {
-		return computationCache.getSize();
+		return cacheSize;
 	}
 
 	@Override
-	public final int nodesCount() {
+	public int nodesCount() {
 		return nextPos;
 	}
 
+	@Override
+	public int nodesAtLevel(int var) {
+		int count = 0;
+
+		for (int node = nextPos - 1; node >= 0; node--)
+			if (var(node) == var)
+				count++;
+
+		return count;
+	}
+
 	@Override
 	public final void printStatistics() {
 		for (int i = 0; i < opCounters.length; i++) {
-			System.out.print(" +" + opCounters[i]);
-			System.out.print(" *" + hitCounters[i]);
+			System.out.print(" +" + opCounters[i].sum());
+			System.out.print(" *" + hitCounters[i].sum());
 		}
+
+		for (OperationCache cache: OperationCache.values())
+			if (cache != OperationCache.APPLY)
+				System.out.print(" " + cache + " +" + getLookups(cache) + " *" + getHits(cache));
+
+		System.out.print(" skipped " + skippedLookups.sum());
 	}
 
 	/*
@@ -130,6 +406,13 @@ class SimpleUniqueTable implements UniqueTable {
 		return ut[id * getNodeSize() + HASHCODEAUX_OFFSET];
 	}
 
+	/**
+	 * Marks the given slot as not holding a valid node.
+	 */
+	protected void invalidate(int node) {
+		ut[node * getNodeSize() + VAR_OFFSET] = -1;
+	}
+
 	/*
 	 * Node mutator methods
 	 */
@@ -193,7 +476,15 @@ class SimpleUniqueTable implements UniqueTable {
 	
 	@Override
 	public final int getFromCache(Operator op, int bdd1, int bdd2) {
-		return computationCache.get(op, bdd1, bdd2);
+		int result = computationCache.get(op, bdd1, bdd2);
+
+		if (cacheStatistics) {
+			opCounters[op.ordinal()].increment();
+			if (result >= 0)
+				hitCounters[op.ordinal()].increment();
+		}
+
+		return result;
 	}
 
 	@Override
@@ -247,6 +538,12 @@ class SimpleUniqueTable implements UniqueTable {
 			while (true);
 	}
 
+	@Override
+	public void getAll(int[] vars, int[] lows, int[] highs, int[] out) {
+		for (int i = 0; i < vars.length; i++)
+			out[i] = get(vars[i], lows[i], highs[i]);
+	}
+
 	public final RestrictCache getRestrictCache() {
 		return restrictCache;
 	}
@@ -255,6 +552,18 @@ class SimpleUniqueTable implements UniqueTable {
 		return composeCache;
 	}
 
+	public final IteCache getIteCache() {
+		return iteCache;
+	}
+
+	public final RelProdCache getRelProdCache() {
+		return relProdCache;
+	}
+
+	public final QuantifiedApplyCache getQuantifiedApplyCache() {
+		return quantifiedApplyCache;
+	}
+
 	public final ReplaceCache getReplaceCache() {
 		return replaceCache;
 	}
@@ -0,0 +1,116 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A cache for APPLY computations whose entries are read and written
+ * under striped locks.
+ */
+class SynchronizedComputationCache extends ComputationCache {
+	private final static int ENTRY_SIZE = 4;
+	private final int[] cache;
+	private final int size;
+
+	/**
+	 * Constructs a SynchronizedComputationCache of the given size.
+	 * 
+	 * @param size the size of the cache
+	 */
+	SynchronizedComputationCache(int size) {
+		this.size = size;
+		int arraySize = size * ENTRY_SIZE;
+		this.cache = new int[arraySize];
+		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
+			cache[i] = -1;
+
+		for (int pos = 0; pos < locks.length; pos++)
+			locks[pos] = new Object();
+	}
+
+	@Override
+	void clear() {
+		int arraySize = size * ENTRY_SIZE;
+		for (int i = 0; i < arraySize; i += ENTRY_SIZE)
+			cache[i] = -1;
+	}
+
+	private final Object[] locks = new Object[1000];
+
+	@Override
+	void copyTo(ComputationCache other, int from, int to) {
+		int[] cache = this.cache;
+
+		for (int i = from * ENTRY_SIZE; i < to * ENTRY_SIZE; i += ENTRY_SIZE)
+			if (cache[i] >= 0)
+				other.store(cache[i], cache[i + 1], cache[i + 2], cache[i + 3]);
+	}
+
+	@Override
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		int[] old = cache.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += ENTRY_SIZE)
+			if (old[i] >= 0) {
+				int bdd1 = relocation.applyAsInt(old[i + 1]), bdd2 = relocation.applyAsInt(old[i + 2]);
+				int result = relocation.applyAsInt(old[i + 3]);
+				if (bdd1 >= 0 && bdd2 >= 0 && result >= 0)
+					store(old[i], bdd1, bdd2, result);
+			}
+	}
+
+	@Override
+	protected int lookup(int ordinal, int bdd1, int bdd2) {
+		int pos = hash(ordinal, bdd1, bdd2), pos1 = pos + 1, pos2 = pos + 2;
+		int[] cache = this.cache;
+
+		if (cache[pos1] == bdd1 && cache[pos2] == bdd2 && cache[pos] == ordinal)
+			synchronized (locks[pos % locks.length]) {
+				return (cache[pos1] == bdd1 && cache[pos2] == bdd2 && cache[pos] == ordinal) ? cache[pos + 3] : -1;
+			}
+
+		return -1;
+	}
+
+	@Override
+	protected void store(int ordinal, int bdd1, int bdd2, int result) {
+		int pos = hash(ordinal, bdd1, bdd2), pos1 = pos + 1, pos2 = pos + 2;
+		int[] cache = this.cache;
+
+		if (cache[pos1] != bdd1 || cache[pos2] != bdd2 || cache[pos] != ordinal)
+			synchronized (locks[pos % locks.length]) {
+				cache[pos] = ordinal;
+				cache[pos1] = bdd1;
+				cache[pos2] = bdd2;
+				cache[pos + 3] = result;
+			}
+	}
+
+	@Override
+	int getSize() {
+		return size;
+	}
+
+	private int hash(int op, int bdd1, int bdd2) {
+		return ENTRY_SIZE * (Math.abs(op ^ bdd1 ^ (bdd2 << 2)) % size);
+	}
+}
\ No newline at end of file
@@ -43,6 +43,14 @@ interface UniqueTable {
 	 * @return the number of nodes
 	 */
 	public int nodesCount();
+
+	/**
+	 * Returns the number of nodes in the table, labeled with the given variable.
+	 * 
+	 * @param var the variable number
+	 * @return the number of nodes
+	 */
+	public int nodesAtLevel(int var);
 	
 	/**
 	 * Returns the high branch of the given node.
@@ -78,6 +86,18 @@ interface UniqueTable {
 	 */
 	public int get(int var, int low, int high);
 
+	/**
+	 * Returns the nodes with the given attributes, creating those not present.
+	 * This is equivalent to calling {@link #get(int, int, int)} on each triple,
+	 * but implementations can overlap the memory accesses of the lookups.
+	 * 
+	 * @param vars the variable numbers
+	 * @param lows the low branch nodes
+	 * @param highs the high branch nodes
+	 * @param out the array, distinct from the others, where the nodes are stored
+	 */
+	public void getAll(int[] vars, int[] lows, int[] highs, int[] out);
+
 	/**
 	 * Gets a result from the computation cache.
 	 * 
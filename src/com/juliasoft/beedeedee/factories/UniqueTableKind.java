@@ -0,0 +1,136 @@
+/*
+  Copyright 2014 Julia s.r.l.
+
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+/**
+ * The implementations of the table of nodes that a {@link Factory} can use.
+ */
+public enum UniqueTableKind {
+
+	/**
+	 * Collision chains guarded by striped locks. This is the default.
+	 */
+
+	CHAINED {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new ResizingAndGarbageCollectedUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * Collision chains extended by compare-and-set, with per-thread
+	 * allocation of nodes. It scales better when many threads create nodes.
+	 */
+
+	LOCK_FREE {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new LockFreeUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * A lock-free open-addressed hash table with power-of-two size and linear
+	 * probing. Nodes are smaller, since they have no collision chain.
+	 */
+
+	OPEN_ADDRESSING {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new OpenAddressingUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * Like {@link #OPEN_ADDRESSING}, but nodes only take 3 ints and the hash
+	 * table is fuller. The hash code of a BDD is computed from its structure
+	 * at each request, which costs a visit of the nodes that are not in a
+	 * small memo of hash codes.
+	 */
+
+	COMPACT {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new CompactUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * Collision chains in a power-of-two hash table, whose buckets migrate
+	 * incrementally after a resize, while the other operations go on.
+	 */
+
+	INCREMENTAL_REHASH {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new IncrementalRehashUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * A separate hash table for each variable, with its own lock and size.
+	 * It counts the nodes of each variable at no cost.
+	 */
+
+	PER_LEVEL {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new PerLevelUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * Collision chains as in {@link #CHAINED}, but nodes are kept in fixed-size
+	 * segments. Resizing appends segments instead of copying the nodes.
+	 */
+
+	SEGMENTED {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new SegmentedUniqueTable(size, cacheSize, factory);
+		}
+	},
+
+	/**
+	 * Collision chains as in {@link #CHAINED}, but nodes are kept in direct
+	 * buffers outside the Java heap. The table can hold about five times
+	 * more nodes and resizing does not copy them. The hash table and the
+	 * arrays used during garbage collection, five bytes per node, are still
+	 * allocated on the Java heap.
+	 */
+
+	OFF_HEAP {
+		@Override
+		ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory) {
+			return new OffHeapUniqueTable(size, cacheSize, factory);
+		}
+	};
+
+	/**
+	 * Creates a table of this kind.
+	 *
+	 * @param size the initial number of nodes
+	 * @param cacheSize the size of the caches
+	 * @param factory the factory that will use the table
+	 * @return the table
+	 */
+
+	abstract ResizingAndGarbageCollectedUniqueTable mk(int size, int cacheSize, Factory factory);
+}
@@ -0,0 +1,152 @@
+/* 
+  Copyright 2014 Julia s.r.l.
+    
+  This file is part of BeeDeeDee.
+
+  BeeDeeDee is free software: you can redistribute it and/or modify
+  it under the terms of the GNU General Public License as published by
+  the Free Software Foundation, either version 3 of the License, or
+  (at your option) any later version.
+
+  BeeDeeDee is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+  GNU General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with BeeDeeDee.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.juliasoft.beedeedee.factories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A cache for APPLY computations that never takes a lock. Each entry is
+ * a pair of longs: a stamp, holding the result, a sequence number and the
+ * operator, and a key, holding the two operands. A reader validates the
+ * key against the stamp, as in a seqlock, and misses if a writer was
+ * active. Writers that find the entry being written just give up, hence
+ * the cache is lossy under contention, as the operation caches of Sylvan.
+ */
+class VersionedComputationCache extends ComputationCache {
+
+	private final static VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final static long OPERATOR_MASK = 0xfL;
+
+	/**
+	 * The lowest bit of the sequence number. The sequence number is odd
+	 * while the entry is being written.
+	 */
+
+	private final static long WRITING = 0x10L;
+
+	private final static long SEQUENCE_MASK = 0xfffffff0L;
+
+	/**
+	 * The key of an empty entry. It cannot match since operands are non-negative.
+	 */
+
+	private final static long EMPTY = -1L;
+
+	private final long[] entries;
+	private final int size;
+
+	/**
+	 * Constructs a VersionedComputationCache of the given size.
+	 * 
+	 * @param size the size of the cache
+	 */
+	VersionedComputationCache(int size) {
+		this.size = size;
+		this.entries = new long[size * 2];
+		clear();
+	}
+
+	@Override
+	void clear() {
+		for (int i = 1; i < entries.length; i += 2)
+			entries[i] = EMPTY;
+	}
+
+	@Override
+	void copyTo(ComputationCache other, int from, int to) {
+		long[] entries = this.entries;
+
+		for (int i = from * 2; i < to * 2; i += 2) {
+			long stamp = entries[i], key = entries[i + 1];
+			if (key != EMPTY && (stamp & WRITING) == 0)
+				other.store((int) (stamp & OPERATOR_MASK), (int) (key >>> 32), (int) key, (int) (stamp >>> 32));
+		}
+	}
+
+	@Override
+	void remap(IntUnaryOperator relocation) {
+		// entries move to other positions, hence we read them from a copy
+		long[] old = entries.clone();
+		clear();
+
+		for (int i = 0; i < old.length; i += 2) {
+			long stamp = old[i], key = old[i + 1];
+
+			if (key != EMPTY && (stamp & WRITING) == 0) {
+				int bdd1 = relocation.applyAsInt((int) (key >>> 32)), bdd2 = relocation.applyAsInt((int) key);
+				int result = relocation.applyAsInt((int) (stamp >>> 32));
+				if (bdd1 >= 0 && bdd2 >= 0 && result >= 0)
+					store((int) (stamp & OPERATOR_MASK), bdd1, bdd2, result);
+			}
+		}
+	}
+
+	@Override
+	protected int lookup(int ordinal, int bdd1, int bdd2) {
+		long[] entries = this.entries;
+		int pos = hash(ordinal, bdd1, bdd2);
+
+		long stamp = (long) LONGS.getAcquire(entries, pos);
+		if ((stamp & WRITING) != 0)
+			return -1;
+
+		long key = entries[pos + 1];
+		// the key must be read before the stamp is read again
+		VarHandle.acquireFence();
+
+		if (key == key(bdd1, bdd2) && (stamp & OPERATOR_MASK) == ordinal && (long) LONGS.getOpaque(entries, pos) == stamp)
+			return (int) (stamp >>> 32);
+		else
+			return -1;
+	}
+
+	@Override
+	protected void store(int ordinal, int bdd1, int bdd2, int result) {
+		long[] entries = this.entries;
+		int pos = hash(ordinal, bdd1, bdd2);
+
+		long stamp = (long) LONGS.getOpaque(entries, pos);
+		if ((stamp & WRITING) != 0)
+			// somebody else is writing this entry: we lose our result
+			return;
+
+		long locked = (stamp & ~SEQUENCE_MASK) | ((stamp + WRITING) & SEQUENCE_MASK);
+		if (!LONGS.compareAndSet(entries, pos, stamp, locked))
+			return;
+
+		entries[pos + 1] = key(bdd1, bdd2);
+		LONGS.setRelease(entries, pos, ((long) result << 32) | ((locked + WRITING) & SEQUENCE_MASK) | ordinal);
+	}
+
+	@Override
+	int getSize() {
+		return size;
+	}
+
+	private static long key(int bdd1, int bdd2) {
+		return ((long) bdd1 << 32) | (bdd2 & 0xffffffffL);
+	}
+
+	private int hash(int op, int bdd1, int bdd2) {
+		return 2 * (((op ^ bdd1 ^ (bdd2 << 2)) & Integer.MAX_VALUE) % size);
+	}
+}
@@ -0,0 +1,52 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public abstract class AbstractSegmentedUniqueTableTest<S> {
+
+	protected AbstractSegmentedUniqueTable<S> ut;
+
+	/**
+	 * @return a table with segments of the default size
+	 */
+
+	protected abstract AbstractSegmentedUniqueTable<S> mk();
+
+	/**
+	 * @return a table with segments of {@code 2^segmentBits} nodes
+	 */
+
+	protected abstract AbstractSegmentedUniqueTable<S> mk(int segmentBits);
+
+	@Before
+	public void setUp() {
+		// segments of 16 nodes
+		ut = mk(4);
+	}
+
+	@Test
+	public void testMaxSizeIsBeyondArrayLimit() {
+		assertTrue(ut.maxSize() > SimpleUniqueTable.MAX_SIZE);
+		assertEquals(0, ut.ut.length);
+		assertEquals(1, ut.getNumberOfSegments());
+	}
+
+	@Test
+	public void testSmallTableDoesNotAllocateAWholeSegment() {
+		AbstractSegmentedUniqueTable<S> small = mk();
+		assertEquals(small.getSize() * SimpleUniqueTable.NODE_SIZE, small.capacity(small.segmentOf(0)));
+	}
+
+	@Test
+	public void testSegmentsHoldAllNodes() {
+		for (int i = 0; i < 1000; i++)
+			ut.get(i % 7, i, i + 1);
+
+		assertTrue(ut.getSize() >= 1000);
+		assertTrue(ut.getNumberOfSegments() * 16 >= ut.getSize());
+	}
+}
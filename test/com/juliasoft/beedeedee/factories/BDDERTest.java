@@ -2,6 +2,7 @@ package com.juliasoft.beedeedee.factories;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -314,6 +315,26 @@ public class BDDERTest {
 		assertEquals(anySat.holds(factory.makeVar(1)), anySat.holds(factory.makeVar(3)));
 	}
 
+	@Test
+	public void testAndAll() {
+		// (x1 <-> x2) & (x2 <-> x3) & x4
+		BDD bdd = factory.andAll(Arrays.asList(bddX1biX2, factory.makeVar(2).biimpWith(factory.makeVar(3)), factory.makeVar(4)));
+		BDD bddEr = erFactory.andAll(Arrays.asList(erBddX1biX2, erFactory.makeVar(2).biimpWith(erFactory.makeVar(3)), erFactory.makeVar(4)));
+
+		assertTrue(bddEr instanceof BDDER);
+		assertTrue(equivalentBDDs(bddEr, bdd));
+		assertTrue(erFactory.orAll(Arrays.asList(erBddX1biX2, erBddX3)).isEquivalentTo(erBddX1biX2.or(erBddX3)));
+	}
+
+	@Test
+	public void testRelProd() {
+		// (x1 <-> x2) & (x2 <-> x3), quantifying x2 and x4
+		BDD bdd = bddX1biX2.relProd(factory.makeVar(2).biimpWith(factory.makeVar(3)), factory.makeVar(2).andWith(factory.makeVar(4)));
+		BDD bddEr = erBddX1biX2.relProd(erFactory.makeVar(2).biimpWith(erFactory.makeVar(3)), erFactory.makeVar(2).andWith(erFactory.makeVar(4)));
+
+		assertTrue(equivalentBDDs(bddEr, bdd));
+	}
+
 	@Test
 	public void testExist1() {
 		// (x1 <-> x2)
@@ -0,0 +1,84 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+
+public class CacheBudgetTest {
+
+	private Factory busy;
+	private Factory idle;
+	private CacheBudget budget;
+
+	@Before
+	public void setUp() {
+		busy = Factory.mk(1000, 100);
+		idle = Factory.mk(1000, 100);
+		budget = new CacheBudget(1 << 20);
+	}
+
+	@After
+	public void cleanUp() {
+		busy.done();
+		idle.done();
+	}
+
+	@Test
+	public void testEvenSplit() {
+		budget.register(busy);
+		budget.register(idle);
+
+		assertEquals(busy.getCacheSize(), idle.getCacheSize());
+		long bytes = (long) (busy.getCacheSize() * busy.ut.getBytesPerCacheSize());
+		assertTrue(Math.abs(bytes - budget.getBytes() / 2) < 100);
+		assertEquals(busy.getCacheSize(), busy.ut.getCacheSize(OperationCache.APPLY));
+	}
+
+	@Test
+	public void testBusyFactoryGetsMore() {
+		budget.register(busy);
+		budget.register(idle);
+
+		BDD f = queens(busy, 6);
+		budget.rebalance();
+		assertTrue(busy.getCacheSize() > 2 * idle.getCacheSize());
+
+		// the entries survived the change of size
+		long hits = busy.getCacheHits(OperationCache.APPLY);
+		assertTrue(queens(busy, 6).isEquivalentTo(f));
+		assertTrue(busy.getCacheHits(OperationCache.APPLY) > hits);
+
+		// the idle factory gets everything
+		budget.unregister(busy);
+		int size = busy.getCacheSize();
+		assertTrue(idle.getCacheSize() > size);
+		budget.rebalance();
+		assertEquals(size, busy.getCacheSize());
+	}
+
+	private static BDD queens(Factory factory, int n) {
+		BDD queen = factory.makeOne();
+
+		for (int i = 0; i < n; i++) {
+			BDD e = factory.makeZero();
+			for (int j = 0; j < n; j++)
+				e.orWith(factory.makeVar(i * n + j));
+
+			queen.andWith(e);
+		}
+
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				for (int k = 0; k < n; k++)
+					for (int l = 0; l < n; l++)
+						if ((k != i || l != j) && (k == i || l == j || k - i == l - j || k - i == j - l))
+							queen.andWith(factory.makeVar(i * n + j).nand(factory.makeVar(k * n + l)));
+
+		return queen;
+	}
+}
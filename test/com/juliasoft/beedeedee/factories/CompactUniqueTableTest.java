@@ -0,0 +1,71 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+
+public class CompactUniqueTableTest {
+
+	private CompactUniqueTable ut;
+
+	@Before
+	public void setUp() {
+		ut = new CompactUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Test
+	public void testNodesTakeThreeInts() {
+		assertEquals(3 * ut.getSize(), ut.ut.length);
+		assertEquals(0, ut.H.length & (ut.H.length - 1));
+		assertTrue(4 * ut.H.length >= 5 * ut.getSize());
+	}
+
+	@Test
+	public void testHashCodeIsStructural() {
+		// terminals
+		ut.get(Integer.MAX_VALUE - 1, -1, -1);
+		ut.get(Integer.MAX_VALUE, -1, -1);
+
+		assertEquals(2, ut.get(3, 0, 1));
+		assertEquals(3, ut.get(4, 0, 1));
+		assertEquals(4, ut.get(2, 3, 1));
+		int hca3 = ut.hashCodeAux(3), hca4 = ut.hashCodeAux(4);
+		assertNotEquals(ut.hashCodeAux(2), hca3);
+
+		// let's kill node 2: the others move but keep their hash code
+		assertEquals(1, ut.compactTable(new boolean[] { true, true, false, true, true }));
+		Arrays.fill(ut.H, -1);
+		ut.updateHashTable();
+
+		assertEquals(2, ut.get(4, 0, 1));
+		assertEquals(hca3, ut.hashCodeAux(2));
+		assertEquals(hca4, ut.hashCodeAux(3));
+	}
+
+	@Test
+	public void testHashCodeSurvivesGC() {
+		Factory factory = Factory.mk(10, 10, UniqueTableKind.COMPACT);
+
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		for (int i = 0; i < 100; i++)
+			x1.xor(x2).orWith(x3.copy()).free();
+
+		BDD or = x1.or(x2).orWith(x3.copy());
+		int hashCode = ((Factory.BDDImpl) or).hashCodeAux();
+		factory.gc();
+
+		// the hash code only depends on the function
+		BDD expected = x1.not().andWith(x2.not()).andWith(x3.not()).notWith();
+		assertEquals(hashCode, ((Factory.BDDImpl) expected).hashCodeAux());
+
+		factory.done();
+	}
+}
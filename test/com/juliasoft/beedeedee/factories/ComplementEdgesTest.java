@@ -0,0 +1,236 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+import com.juliasoft.beedeedee.factories.Factory.BDDImpl;
+
+public class ComplementEdgesTest {
+
+	private Factory factory;
+	private Factory plain;
+
+	@Before
+	public void setUp() {
+		factory = Factory.mk(10, 10, UniqueTableKind.CHAINED, true);
+		plain = Factory.mk(10, 10);
+	}
+
+	@After
+	public void cleanUp() {
+		factory.done();
+		plain.done();
+	}
+
+	@Test
+	public void testTerminals() {
+		assertTrue(factory.makeZero().isZero());
+		assertTrue(factory.makeOne().isOne());
+		assertTrue(factory.makeZero().not().isOne());
+		assertTrue(factory.makeOne().not().isZero());
+		assertEquals(1, factory.makeOne().pathCount());
+		assertEquals(0, factory.makeZero().pathCount());
+	}
+
+	@Test
+	public void testNegationSharesNodes() {
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		BDD f = x1.and(x2).orWith(x3.copy());
+		int nodesBefore = factory.nodesCount();
+		BDD notF = f.not();
+
+		assertEquals(nodesBefore, factory.nodesCount());
+		assertTrue(notF.not().isEquivalentTo(f));
+		assertTrue(factory.makeNotVar(1).isEquivalentTo(x1.not()));
+		assertTrue(factory.makeNotVar(1).isNotVar());
+		assertTrue(x1.isVar());
+		assertEquals(f.nodeCount(), notF.nodeCount());
+		assertTrue(f.and(notF).isZero());
+		assertTrue(f.or(notF).isOne());
+	}
+
+	@Test
+	public void testXorChainUsesFewerNodes() {
+		BDD parity = factory.makeZero(), plainParity = plain.makeZero();
+		for (int i = 0; i < 20; i++) {
+			parity.xorWith(factory.makeVar(i));
+			plainParity.xorWith(plain.makeVar(i));
+		}
+
+		assertEquals(plainParity.satCount(19), parity.satCount(19));
+		assertTrue(parity.nodeCount() < plainParity.nodeCount());
+		assertTrue(parity.not().isEquivalentTo(parity.biimp(factory.makeZero())));
+	}
+
+	@Test
+	public void testAgreesWithPlainFactory() {
+		Random random = new Random(42);
+
+		for (int round = 0; round < 50; round++) {
+			long seed = random.nextLong();
+			BDD f = randomFormula(factory, new Random(seed), 5);
+			BDD g = randomFormula(plain, new Random(seed), 5);
+
+			assertEquals(g.satCount(7), f.satCount(7));
+			assertEquals(g.pathCount(), f.pathCount());
+			assertEquals(g.vars(), f.vars());
+
+			BitSet vars = new BitSet();
+			vars.set(2);
+			vars.set(5);
+			assertEquals(g.exist(vars).satCount(7), f.exist(vars).satCount(7));
+			assertEquals(g.forAll(plain.makeVar(3)).satCount(7), f.forAll(factory.makeVar(3)).satCount(7));
+			assertEquals(g.restrict(4, true).satCount(7), f.restrict(4, true).satCount(7));
+			assertEquals(g.compose(plain.makeVar(6), 1).satCount(7), f.compose(factory.makeVar(6), 1).satCount(7));
+
+			Map<Integer, Integer> renaming = new HashMap<>();
+			renaming.put(7, 8);
+			assertEquals(g.replace(renaming).satCount(8), f.replace(renaming).satCount(8));
+		}
+	}
+
+	@Test
+	public void testIteStandardTriples() {
+		Random random = new Random(17);
+
+		for (Factory factory: new Factory[] { this.factory, plain })
+			for (int round = 0; round < 30; round++) {
+				BDD f = randomFormula(factory, random, 4), g = randomFormula(factory, random, 4), h = randomFormula(factory, random, 4);
+				BDD[][] triples = {
+					{ f, g, h }, { f, f, h }, { f, g, f }, { f, f.not(), h }, { f, g, f.not() },
+					{ f, factory.makeOne(), h }, { h, factory.makeOne(), f }, { f, g, factory.makeZero() },
+					{ f, factory.makeZero(), h }, { f, g, factory.makeOne() }, { f, g, g.not() }, { f.not(), g, h }
+				};
+
+				for (BDD[] triple: triples) {
+					BDD expected = triple[0].and(triple[1]).orWith(triple[0].not().andWith(triple[2].copy()));
+					assertTrue(triple[0].ite(triple[1], triple[2]).isEquivalentTo(expected));
+				}
+			}
+	}
+
+	@Test
+	public void testRelProdAgreesWithAndExist() {
+		Random random = new Random(23);
+
+		for (Factory factory: new Factory[] { this.factory, plain })
+			for (int round = 0; round < 30; round++) {
+				BDD f = randomFormula(factory, random, 4), g = randomFormula(factory, random, 4);
+				BDD vars = factory.makeOne();
+				for (int v = 0; v < 6; v++)
+					if (random.nextBoolean())
+						vars.andWith(factory.makeVar(v));
+
+				assertTrue(f.relProd(g, vars).isEquivalentTo(f.and(g).exist(vars)));
+				assertTrue(f.relProd(f.not(), vars).isZero());
+				assertTrue(f.relProd(factory.makeOne(), vars).isEquivalentTo(f.exist(vars)));
+			}
+	}
+
+	@Test
+	public void testQuantifiedApplyAgreesWithApplyThenQuantify() {
+		Random random = new Random(29);
+
+		for (Factory factory: new Factory[] { this.factory, plain })
+			for (int round = 0; round < 30; round++) {
+				BDD f = randomFormula(factory, random, 4), g = randomFormula(factory, random, 4);
+				BDD vars = factory.makeOne();
+				for (int v = 0; v < 6; v++)
+					if (random.nextBoolean())
+						vars.andWith(factory.makeVar(v));
+
+				for (Operator op: Operator.values()) {
+					BDD applied;
+					switch (op) {
+					case AND: applied = f.and(g); break;
+					case OR: applied = f.or(g); break;
+					case IMP: applied = f.imp(g); break;
+					case BIIMP: applied = f.biimp(g); break;
+					default: applied = f.xor(g);
+					}
+
+					BDDImpl impl = (BDDImpl) f;
+					assertTrue(impl.applyQuantified(g, op, Quantifier.EXIST, vars).isEquivalentTo(applied.exist(vars)));
+					assertTrue(impl.applyQuantified(g, op, Quantifier.FORALL, vars).isEquivalentTo(applied.forAll(vars)));
+				}
+			}
+	}
+
+	@Test
+	public void testParallelApplyAgreesWithSequential() {
+		Random random = new Random(31);
+
+		for (Factory factory: new Factory[] { this.factory, plain })
+			for (int round = 0; round < 30; round++) {
+				BDD f = randomFormula(factory, random, 5), g = randomFormula(factory, random, 5);
+				BDD[] expected = { f.and(g), f.or(g), f.xor(g), f.nand(g), f.imp(g), f.biimp(g) };
+
+				assertEquals(0, factory.setParallelApplyDepth(3));
+				BDD[] parallel = { f.and(g), f.or(g), f.xor(g), f.nand(g), f.imp(g), f.biimp(g) };
+				assertEquals(3, factory.setParallelApplyDepth(0));
+
+				for (int pos = 0; pos < expected.length; pos++)
+					assertTrue(parallel[pos].isEquivalentTo(expected[pos]));
+			}
+	}
+
+	@Test
+	public void testGarbageCollection() {
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		for (int i = 0; i < 100; i++)
+			x1.xor(x2).orWith(x3.copy()).free();
+
+		BDD f = x1.imp(x2).andWith(x3.not());
+		int hashCode = ((Factory.BDDImpl) f).hashCodeAux();
+		factory.gc();
+
+		BDD expected = x1.not().orWith(x2.copy()).andWith(x3.not());
+		assertTrue(f.isEquivalentTo(expected));
+		assertFalse(f.isEquivalentTo(expected.not()));
+		assertEquals(hashCode, ((Factory.BDDImpl) expected).hashCodeAux());
+		assertEquals(3, f.satCount(3) / 2);
+	}
+
+	@Test
+	public void testCompactTable() {
+		Factory compact = Factory.mk(10, 10, UniqueTableKind.COMPACT, true);
+		BDD x1 = compact.makeVar(1), x2 = compact.makeVar(2);
+		for (int i = 0; i < 100; i++)
+			x1.and(x2).free();
+
+		BDD f = x1.xor(x2);
+		int hashCode = ((Factory.BDDImpl) f).hashCodeAux();
+		compact.gc();
+
+		assertEquals(hashCode, ((Factory.BDDImpl) x2.xor(x1)).hashCodeAux());
+		assertTrue(((Factory.BDDImpl) f.not()).hashCodeAux() != hashCode);
+		compact.done();
+	}
+
+	private static BDD randomFormula(Factory factory, Random random, int depth) {
+		if (depth == 0 || random.nextInt(4) == 0)
+			return random.nextBoolean() ? factory.makeVar(random.nextInt(8)) : factory.makeNotVar(random.nextInt(8));
+
+		BDD left = randomFormula(factory, random, depth - 1), right = randomFormula(factory, random, depth - 1);
+		switch (random.nextInt(7)) {
+		case 0: return left.andWith(right);
+		case 1: return left.orWith(right);
+		case 2: return left.xorWith(right);
+		case 3: return left.impWith(right);
+		case 4: return left.biimpWith(right);
+		case 5: return left.nandWith(right);
+		default: return left.ite(right, right.not());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+
+public class CubeRegistryTest {
+
+	private CubeRegistry cubes;
+
+	@Before
+	public void setUp() {
+		cubes = new CubeRegistry();
+	}
+
+	@Test
+	public void testIntern() {
+		BitSet vars = new BitSet();
+		vars.set(1);
+		vars.set(3);
+		int cube = cubes.intern(vars);
+
+		BitSet same = new BitSet();
+		same.set(3);
+		same.set(1);
+		assertEquals(cube, cubes.intern(same));
+
+		// the registry keeps its own copy
+		vars.set(5);
+		assertTrue(cube != cubes.intern(vars));
+		assertEquals(same, cubes.get(cube));
+		assertEquals(2, cubes.size());
+	}
+
+	@Test
+	public void testManyCubes() {
+		for (int i = 0; i < 100; i++) {
+			BitSet vars = new BitSet();
+			vars.set(i);
+			assertEquals(i, cubes.intern(vars));
+		}
+
+		for (int i = 0; i < 100; i++)
+			assertEquals(i, cubes.get(i).nextSetBit(0));
+	}
+
+	@Test
+	public void testQuantCache() {
+		QuantCache cache = new QuantCache(100);
+		cache.put(true, 10, 3, 20);
+
+		assertEquals(20, cache.get(true, 10, 3));
+		assertEquals(-1, cache.get(false, 10, 3));
+		assertEquals(-1, cache.get(true, 10, 4));
+	}
+
+	@Test
+	public void testFactoryReusesCubes() {
+		Factory factory = Factory.mk(1000, 1000);
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		BDD f = x1.and(x2).orWith(x3.copy());
+		BDD cube = x1.and(x3);
+
+		BDD exist = f.exist(cube);
+		BitSet vars = new BitSet();
+		vars.set(1);
+		vars.set(3);
+		assertTrue(exist.isEquivalentTo(f.exist(vars)));
+		assertEquals(1, factory.cubes.size());
+
+		BDD forAll = f.forAll(cube);
+		assertEquals(1, factory.cubes.size());
+		assertTrue(forAll.isZero());
+
+		factory.done();
+	}
+}
@@ -0,0 +1,54 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+
+@RunWith(Parameterized.class)
+public class FactoryKindsTest {
+
+	@Parameter(0)
+	public UniqueTableKind kind;
+
+	@Parameter(1)
+	public ComputationCacheKind cacheKind;
+
+	@Parameters(name = "{0}, {1}")
+	public static Collection<Object[]> kinds() {
+		List<Object[]> kinds = new ArrayList<>();
+		for (UniqueTableKind kind: UniqueTableKind.values())
+			for (ComputationCacheKind cacheKind: ComputationCacheKind.values())
+				kinds.add(new Object[] { kind, cacheKind });
+
+		return kinds;
+	}
+
+	@Test
+	public void testFactory() {
+		Factory factory = Factory.mk(10, 10, kind, false, cacheKind);
+
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		for (int i = 0; i < 100; i++)
+			x1.xor(x2).orWith(x3.copy()).free();
+
+		factory.gc();
+
+		BDD or = x1.or(x2).orWith(x3.copy());
+		BDD expected = x1.not().andWith(x2.not()).andWith(x3.not()).notWith();
+		assertTrue(or.isEquivalentTo(expected));
+		assertEquals(7, or.satCount(3) / 2);
+
+		factory.done();
+	}
+}
@@ -1,8 +1,10 @@
 package com.juliasoft.beedeedee.factories;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -351,6 +353,67 @@ public class FactoryTest {
 		and.replaceWith(renaming);
 	}
 
+	@Test
+	public void testReplaceWithRenaming() {
+		BDD and = x1.and(x2);
+
+		// rename 1->5, 2->4
+		renaming.put(1, 5);
+		renaming.put(2, 4);
+		Renaming r = factory.makeRenaming(renaming);
+
+		// equal maps yield the same renaming, also after the map is modified
+		renaming.put(3, 6);
+		assertTrue(r != factory.makeRenaming(renaming));
+		renaming.remove(3);
+		assertTrue(r == factory.makeRenaming(new HashMap<>(renaming)));
+		assertEquals(5, r.newVarOf(1));
+		assertEquals(3, r.newVarOf(3));
+
+		BDD andR = and.replace(r);
+		assertTrue(andR.isEquivalentTo(x5.and(x4)));
+		assertTrue(andR.isEquivalentTo(and.replace(renaming)));
+
+		and.replaceWith(r);
+		assertTrue(and.isEquivalentTo(andR));
+	}
+
+	@Test
+	public void testImplicitRenamingsAreNotKept() {
+		Map<Integer, Integer> map = new HashMap<>();
+		map.put(1, 2);
+		Renaming first = factory.compileRenaming(map);
+		assertTrue(factory.compileRenaming(map) == first);
+
+		// many ad-hoc maps push the first renaming out
+		for (int var = 10; var < 200; var++) {
+			Map<Integer, Integer> other = new HashMap<>();
+			other.put(var, var + 1);
+			x1.replace(other).free();
+		}
+
+		Renaming second = factory.compileRenaming(map);
+		assertTrue(second != first);
+		assertTrue(second.id != first.id);
+
+		// explicit renamings are kept, and preferred
+		Renaming explicit = factory.makeRenaming(map);
+		assertTrue(factory.compileRenaming(map) == explicit);
+		assertTrue(factory.makeRenaming(map) == explicit);
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testRenamingOfAnotherFactory() {
+		renaming.put(1, 3);
+		Factory other = Factory.mk(10, 10);
+		try {
+			x1.replace(other.makeRenaming(renaming));
+		}
+		finally {
+			other.done();
+		}
+	}
+
 	@Test
 	public void testCompose() {
 		BDD and = x1.and(x2);
@@ -390,6 +453,66 @@ public class FactoryTest {
 		assertTrue(ite.isEquivalentTo(expected));
 	}
 
+	@Test
+	public void testCacheAdmission() {
+		factory.setCacheStatistics(true);
+		BDD expected = x1.xor(x2).andWith(x3.or(x4)).orWith(x5.copy());
+		long skipped = factory.getSkippedCacheLookups();
+
+		// all variables are within 4 of the largest one, hence nothing is cached
+		assertEquals(0, factory.setCacheAdmissionHeight(5));
+		long lookups = factory.getCacheLookups(OperationCache.APPLY);
+		BDD f = x1.xor(x2).andWith(x3.or(x4)).orWith(x5.copy());
+		assertTrue(f.isEquivalentTo(expected));
+		assertEquals(lookups, factory.getCacheLookups(OperationCache.APPLY));
+		assertTrue(factory.getSkippedCacheLookups() > skipped);
+
+		assertEquals(5, factory.setCacheAdmissionHeight(0));
+		skipped = factory.getSkippedCacheLookups();
+		x1.xor(x2).andWith(x3.or(x4)).orWith(x5.copy());
+		assertTrue(factory.getCacheLookups(OperationCache.APPLY) > lookups);
+		assertEquals(skipped, factory.getSkippedCacheLookups());
+	}
+
+	@Test
+	public void testIteIsCached() {
+		factory.setCacheStatistics(true);
+		BDD f = x1.xor(x2), g = x2.or(x3), h = x3.and(x4);
+		BDD ite = f.ite(g, h);
+
+		long hits = factory.ut.getHits(OperationCache.ITE);
+		assertTrue(f.ite(g, h).isEquivalentTo(ite));
+		assertTrue(factory.ut.getHits(OperationCache.ITE) > hits);
+
+		// f or h is the same triple as h or f
+		hits = factory.ut.getHits(OperationCache.ITE);
+		BDD or = f.ite(factory.makeOne(), h);
+		assertTrue(h.ite(factory.makeOne(), f).isEquivalentTo(or));
+		assertTrue(factory.ut.getHits(OperationCache.ITE) > hits);
+	}
+
+	@Test
+	public void testGCWithChildrenAfterTheirParents() throws InterruptedException {
+		Factory factory = Factory.mk(10000, 1000);
+		// this thread reserves its chunk of nodes first
+		BDD garbage = factory.makeVar(20).and(factory.makeVar(21));
+
+		BDD[] child = new BDD[1];
+		Thread other = new Thread(() -> child[0] = factory.makeVar(30).xor(factory.makeVar(31)).orWith(factory.makeVar(32)));
+		other.start();
+		other.join();
+
+		// the parents lie in the first chunk, before their children
+		BDD parent = factory.makeVar(1).xor(factory.makeVar(2)).andWith(child[0].copy());
+		long count = parent.satCount(32);
+
+		garbage.free();
+		factory.gc();
+		assertEquals(count, parent.satCount(32));
+		assertTrue(parent.isEquivalentTo(factory.makeVar(1).xor(factory.makeVar(2)).andWith(child[0].copy())));
+		factory.done();
+	}
+
 	@Test
 	public void testMarkAliveNodes1() {
 		factory = new Factory(10, 10, 0);
@@ -516,4 +639,138 @@ public class FactoryTest {
 		assertTrue(exist.isEquivalentTo(expected));
 	}
 
+	@Test
+	public void testSingleVariableQuantification() {
+		// (x1 <-> x2) & (x3 OR x4)
+		BDD bdd = x1.biimp(x2).andWith(x3.or(x4));
+
+		for (int var = 0; var <= 5; var++) {
+			BDD low = bdd.restrict(var, false), high = bdd.restrict(var, true);
+			assertTrue(bdd.exist(var).isEquivalentTo(low.or(high)));
+			assertTrue(bdd.forAll(var).isEquivalentTo(low.and(high)));
+		}
+
+		// nothing below the quantified variables is visited
+		factory.setCacheStatistics(true);
+		long lookups = factory.getCacheLookups(OperationCache.QUANT);
+		assertTrue(bdd.exist(0).isEquivalentTo(bdd));
+		assertEquals(lookups, factory.getCacheLookups(OperationCache.QUANT));
+	}
+
+	@Test
+	public void testAndAllOrAll() {
+		List<BDD> bdds = new ArrayList<>();
+		BDD and = factory.makeOne(), or = factory.makeZero();
+
+		// enough operands to be split into blocks
+		for (int i = 0; i < 150; i++) {
+			BDD bdd = factory.makeVar(i % 13).impWith(factory.makeNotVar((i * 7) % 17));
+			and.andWith(bdd.copy());
+			or.orWith(bdd.copy());
+			bdds.add(bdd);
+		}
+
+		assertTrue(factory.andAll(bdds).isEquivalentTo(and));
+		assertTrue(factory.orAll(bdds).isEquivalentTo(or));
+		assertTrue(factory.andAll(bdds.subList(0, 3)).isEquivalentTo(bdds.get(0).and(bdds.get(1)).andWith(bdds.get(2).copy())));
+
+		assertTrue(factory.andAll(new ArrayList<>()).isOne());
+		assertTrue(factory.orAll(new ArrayList<>()).isZero());
+
+		bdds.add(factory.makeZero());
+		assertTrue(factory.andAll(bdds).isZero());
+	}
+
+	@Test
+	public void testCacheLookupsAreOnlyCountedOnRequest() {
+		x1.xor(x2).andWith(x3.or(x4));
+		assertEquals(0, factory.getCacheLookups(OperationCache.APPLY));
+
+		assertFalse(factory.setCacheStatistics(true));
+		x1.xor(x2).andWith(x3.or(x4));
+		assertTrue(factory.getCacheLookups(OperationCache.APPLY) > 0);
+	}
+
+	@Test
+	public void testCacheShare() {
+		assertEquals(0.05, factory.setCacheShare(OperationCache.QUANT, 0.5), 0.0);
+		assertEquals(factory.ut.getCacheSize() / 2, factory.ut.getCacheSize(OperationCache.QUANT));
+
+		BDD bdd = x1.or(x2).andWith(x3.copy());
+		assertTrue(bdd.exist(x1.and(x2)).isEquivalentTo(x3));
+	}
+
+	@Test
+	public void testCacheRebalancing() {
+		Factory factory = Factory.mk(1000, 1000);
+		factory.setCacheRebalancing(true);
+
+		BDD parity = factory.makeZero();
+		for (int var = 0; var < 12; var++)
+			parity.xorWith(factory.makeVar(var));
+
+		// quantification misses much more than the other operations
+		for (int var = 0; var < 12; var++)
+			for (int other = 0; other < 12; other++) {
+				BitSet vars = new BitSet();
+				vars.set(var);
+				vars.set(other);
+				parity.exist(vars).free();
+			}
+
+		factory.ut.resize();
+
+		int quantSize = factory.ut.getCacheSize(OperationCache.QUANT), restrictSize = factory.ut.getCacheSize(OperationCache.RESTRICT);
+		assertTrue(quantSize > restrictSize);
+		assertEquals((int) (factory.ut.getCacheSize() * 0.05 / 2), restrictSize);
+		assertTrue(parity.exist(factory.makeVar(3)).isOne());
+
+		factory.done();
+	}
+
+	@Test
+	public void testCacheRemapping() {
+		Factory factory = Factory.mk(1000, 1000);
+		factory.setCacheRemapping(true);
+		factory.setCacheStatistics(true);
+
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		for (int i = 0; i < 100; i++)
+			x1.xor(x2).orWith(x3.copy()).free();
+
+		BDD and = x1.and(x2).andWith(x3.copy());
+		BDD exist = and.exist(x2);
+		factory.gc();
+
+		// the results survived, at their new indexes
+		long hits = factory.ut.getHits(OperationCache.APPLY), quantHits = factory.ut.getHits(OperationCache.QUANT);
+		assertTrue(x1.and(x2).andWith(x3.copy()).isEquivalentTo(and));
+		assertTrue(and.exist(x2).isEquivalentTo(exist));
+		assertTrue(factory.ut.getHits(OperationCache.APPLY) > hits);
+		assertTrue(factory.ut.getHits(OperationCache.QUANT) > quantHits);
+		assertTrue(exist.isEquivalentTo(x1.and(x3)));
+
+		factory.done();
+	}
+
+	@Test
+	public void testCachesSurviveResize() {
+		Factory factory = Factory.mk(1000, 1000);
+		factory.setCacheStatistics(true);
+
+		BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+		BDD and = x1.and(x2).andWith(x3.copy());
+		BDD exist = and.exist(x2);
+		int cacheSize = factory.ut.getCacheSize();
+		factory.ut.resize();
+
+		// the statistics restart at each resize
+		assertTrue(factory.ut.getCacheSize() > cacheSize);
+		assertTrue(x1.and(x2).andWith(x3.copy()).isEquivalentTo(and));
+		assertTrue(and.exist(x2).isEquivalentTo(exist));
+		assertTrue(factory.ut.getHits(OperationCache.APPLY) > 0);
+		assertTrue(factory.ut.getHits(OperationCache.QUANT) > 0);
+
+		factory.done();
+	}
 }
@@ -0,0 +1,89 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalRehashUniqueTableTest {
+
+	private IncrementalRehashUniqueTable ut;
+
+	@Before
+	public void setUp() {
+		ut = new IncrementalRehashUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Test
+	public void testHashTableIsPowerOfTwo() {
+		assertEquals(0, ut.H.length & (ut.H.length - 1));
+		assertTrue(ut.H.length >= ut.getSize());
+	}
+
+	@Test
+	public void testGetIsCanonicalAcrossResizes() {
+		int[] nodes = new int[5000];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = ut.get(i % 7, i, i + 1);
+
+		// the hash table has grown beyond its minimal size
+		assertTrue(ut.H.length > 1024);
+		for (int i = 0; i < nodes.length; i++) {
+			assertEquals(nodes[i], ut.get(i % 7, i, i + 1));
+			assertEquals(i % 7, ut.var(nodes[i]));
+			assertEquals(i, ut.low(nodes[i]));
+			assertEquals(i + 1, ut.high(nodes[i]));
+		}
+	}
+
+	@Test
+	public void testMigrationCompletes() throws InterruptedException {
+		for (int i = 0; i < 5000; i++)
+			ut.get(i % 7, i, i + 1);
+
+		for (int attempts = 0; ut.isMigrating() && attempts < 1000; attempts++)
+			Thread.sleep(10);
+
+		assertFalse(ut.isMigrating());
+		for (int i = 0; i < 5000; i++)
+			assertEquals(i, ut.low(ut.get(i % 7, i, i + 1)));
+	}
+
+	@Test
+	public void testConcurrentGetIsCanonical() throws InterruptedException {
+		int threads = 8, nodes = 20000;
+		int[][] results = new int[threads][nodes];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++) {
+			int[] mine = results[t];
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {}
+
+				for (int i = 0; i < nodes; i++)
+					mine[i] = ut.get(i % 50, i, i + 1);
+			});
+			workers[t].start();
+		}
+
+		start.countDown();
+		for (Thread worker: workers)
+			worker.join();
+
+		for (int t = 1; t < threads; t++)
+			for (int i = 0; i < nodes; i++)
+				assertEquals(results[0][i], results[t][i]);
+
+		for (int i = 0; i < nodes; i++)
+			assertEquals(results[0][i], ut.get(i % 50, i, i + 1));
+	}
+}
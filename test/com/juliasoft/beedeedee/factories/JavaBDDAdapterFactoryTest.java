@@ -175,4 +175,55 @@ public class JavaBDDAdapterFactoryTest {
 		BDD mrp = mx0.relprod(mx1, mx0);
 		assertEquals(mrp, mx0.and(mx1).exist(mx0));
 	}
+
+	@Test
+	public void testQuantifiedApply() {
+		BDDFactory.BDDOp[] ops = { BDDFactory.and, BDDFactory.or, BDDFactory.xor, BDDFactory.imp, BDDFactory.biimp };
+
+		for (BDDFactory factory: new BDDFactory[] { this.factory, jfactory }) {
+			// (x0 & x1) | x3 and (x1 <-> x2) | !x4, quantifying x1 and x4
+			BDD f = factory.ithVar(0).and(factory.ithVar(1)).or(factory.ithVar(3));
+			BDD g = factory.ithVar(1).biimp(factory.ithVar(2)).or(factory.nithVar(4));
+			BDD vars = factory.ithVar(1).and(factory.ithVar(4));
+
+			for (BDDFactory.BDDOp op: ops) {
+				assertEquals(f.apply(g, op).exist(vars), f.applyEx(g, op, vars));
+				assertEquals(f.apply(g, op).forAll(vars), f.applyAll(g, op, vars));
+			}
+		}
+
+		BDD f = factory.ithVar(0).and(factory.ithVar(1)).or(factory.ithVar(3));
+		BDD g = factory.ithVar(1).biimp(factory.ithVar(2)).or(factory.nithVar(4));
+		BDD jf = jfactory.ithVar(0).and(jfactory.ithVar(1)).or(jfactory.ithVar(3));
+		BDD jg = jfactory.ithVar(1).biimp(jfactory.ithVar(2)).or(jfactory.nithVar(4));
+
+		// x4 is not tested on every path, and x7 is never tested
+		for (int[] quantified: new int[][] { { 1, 4 }, { 7 }, { 1, 7 } }) {
+			BDD vars = factory.one(), jvars = jfactory.one();
+			for (int v: quantified) {
+				vars.andWith(factory.ithVar(v));
+				jvars.andWith(jfactory.ithVar(v));
+			}
+
+			for (BDDFactory.BDDOp op: ops)
+				assertEquals(fromJFactory(jf.apply(jg, op).unique(jvars)), f.applyUni(g, op, vars));
+		}
+
+		// as in JFactory, unique quantification over a variable that is not tested is false
+		BDD jresult = jf.applyUni(jg, BDDFactory.and, jfactory.ithVar(7));
+		assertTrue(jresult.isZero());
+		assertEquals(fromJFactory(jresult), f.applyUni(g, BDDFactory.and, factory.ithVar(7)));
+	}
+
+	/**
+	 * Rebuilds a BDD of the original JavaBDD factory in the wrapper factory.
+	 */
+	private BDD fromJFactory(BDD bdd) {
+		if (bdd.isZero())
+			return factory.zero();
+		else if (bdd.isOne())
+			return factory.one();
+		else
+			return factory.ithVar(bdd.var()).ite(fromJFactory(bdd.high()), fromJFactory(bdd.low()));
+	}
 }
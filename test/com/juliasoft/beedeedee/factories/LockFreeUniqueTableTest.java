@@ -0,0 +1,78 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LockFreeUniqueTableTest {
+
+	private LockFreeUniqueTable ut;
+
+	@Before
+	public void setUp() {
+		ut = new LockFreeUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Test
+	public void testGetIsCanonical() {
+		int node1 = ut.get(3, 0, 1);
+		int node2 = ut.get(4, 0, 1);
+
+		assertNotEquals(node1, node2);
+		assertEquals(node1, ut.get(3, 0, 1));
+		assertEquals(node2, ut.get(4, 0, 1));
+		assertEquals(3, ut.var(node1));
+		assertEquals(0, ut.low(node1));
+		assertEquals(1, ut.high(node1));
+	}
+
+	@Test
+	public void testResizeKeepsNodes() {
+		int[] nodes = new int[100];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = ut.get(i, i + 1, i + 2);
+
+		assertTrue(ut.getSize() >= nodes.length);
+		for (int i = 0; i < nodes.length; i++)
+			assertEquals(nodes[i], ut.get(i, i + 1, i + 2));
+	}
+
+	@Test
+	public void testConcurrentGetIsCanonical() throws InterruptedException {
+		int threads = 8, nodes = 20000;
+		int[][] results = new int[threads][nodes];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+
+		for (int t = 0; t < threads; t++) {
+			int[] mine = results[t];
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {}
+
+				for (int i = 0; i < nodes; i++)
+					mine[i] = ut.get(i % 50, i, i + 1);
+			});
+			workers[t].start();
+		}
+
+		start.countDown();
+		for (Thread worker: workers)
+			worker.join();
+
+		for (int t = 1; t < threads; t++)
+			for (int i = 0; i < nodes; i++)
+				assertEquals(results[0][i], results[t][i]);
+
+		for (int i = 0; i < nodes; i++)
+			assertEquals(results[0][i], ut.get(i % 50, i, i + 1));
+	}
+}
@@ -0,0 +1,34 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.nio.IntBuffer;
+
+import org.junit.Test;
+
+public class OffHeapUniqueTableTest extends AbstractSegmentedUniqueTableTest<IntBuffer> {
+
+	@Override
+	protected OffHeapUniqueTable mk() {
+		return new OffHeapUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Override
+	protected OffHeapUniqueTable mk(int segmentBits) {
+		return new OffHeapUniqueTable(10, 10, mock(Factory.class), segmentBits);
+	}
+
+	@Test
+	public void testSegmentsAreOutsideTheHeap() {
+		for (int i = 0; i < 1000; i++)
+			ut.get(i % 7, i, i + 1);
+
+		for (int id = 0; id + 16 <= ut.getSize(); id += 16) {
+			IntBuffer segment = ut.segmentOf(id);
+			assertTrue(segment.isDirect());
+			assertEquals(16 * SimpleUniqueTable.NODE_SIZE, segment.capacity());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OpenAddressingUniqueTableTest {
+
+	private OpenAddressingUniqueTable ut;
+
+	@Before
+	public void setUp() {
+		ut = new OpenAddressingUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Test
+	public void testGetAll() {
+		int[] vars = new int[1000], lows = new int[1000], highs = new int[1000], nodes = new int[1000];
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = i % 7;
+			lows[i] = i / 2;
+			highs[i] = i / 2 + 1;
+		}
+
+		// the first batch creates the nodes and resizes the table
+		ut.getAll(vars, lows, highs, nodes);
+		for (int i = 0; i < vars.length; i++)
+			assertEquals(nodes[i], ut.get(vars[i], lows[i], highs[i]));
+
+		// the second batch finds them
+		int[] again = new int[1000];
+		ut.getAll(vars, lows, highs, again);
+		assertArrayEquals(nodes, again);
+	}
+
+	@Test
+	public void testHashTableIsPowerOfTwo() {
+		assertEquals(0, ut.H.length & (ut.H.length - 1));
+		assertTrue(ut.H.length >= 2 * ut.getSize());
+	}
+
+	@Test
+	public void testToString() {
+		for (int i = 0; i < 100; i++)
+			ut.get(i % 7, i, i + 1);
+
+		assertEquals(100, ut.toString().split("\n").length);
+	}
+}
@@ -0,0 +1,94 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juliasoft.beedeedee.bdd.BDD;
+
+public class PerLevelUniqueTableTest {
+
+	private PerLevelUniqueTable ut;
+
+	@Before
+	public void setUp() {
+		ut = new PerLevelUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Test
+	public void testGetAll() {
+		int[] vars = new int[1000], lows = new int[1000], highs = new int[1000], nodes = new int[1000];
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = i % 7;
+			lows[i] = i / 2;
+			highs[i] = i / 2 + 1;
+		}
+
+		// the first batch creates the nodes and resizes the table
+		ut.getAll(vars, lows, highs, nodes);
+		for (int i = 0; i < vars.length; i++)
+			assertEquals(nodes[i], ut.get(vars[i], lows[i], highs[i]));
+
+		// the second batch finds them
+		int[] again = new int[1000];
+		ut.getAll(vars, lows, highs, again);
+		assertArrayEquals(nodes, again);
+	}
+
+	@Test
+	public void testNodesAtLevel() {
+		for (int i = 0; i < 1000; i++)
+			ut.get(i % 7, i, i + 1);
+
+		assertEquals(143, ut.nodesAtLevel(0));
+		assertEquals(142, ut.nodesAtLevel(6));
+		assertEquals(0, ut.nodesAtLevel(7));
+		assertEquals(0, ut.nodesAtLevel(100000));
+	}
+
+	@Test
+	public void testCompactTable() {
+		// terminals
+		ut.get(Integer.MAX_VALUE - 1, -1, -1);
+		ut.get(Integer.MAX_VALUE, -1, -1);
+
+		assertEquals(2, ut.get(3, 0, 1));
+		assertEquals(3, ut.get(4, 0, 1));
+		assertEquals(1, ut.nodesAtLevel(3));
+
+		// let's kill node 2
+		assertEquals(1, ut.compactTable(new boolean[] { true, true, false, true }));
+		Arrays.fill(ut.H, -1);
+		ut.updateHashTable();
+
+		// x4 has been shifted back by one
+		assertEquals(0, ut.nodesAtLevel(3));
+		assertEquals(1, ut.nodesAtLevel(4));
+		assertEquals(2, ut.get(4, 0, 1));
+		assertEquals(1, ut.get(Integer.MAX_VALUE, -1, -1));
+	}
+
+	@Test
+	public void testNodesAtLevelMatchesChainedTable() {
+		Factory perLevel = Factory.mk(10, 10, UniqueTableKind.PER_LEVEL);
+		Factory chained = Factory.mk(10, 10, UniqueTableKind.CHAINED);
+
+		for (Factory factory: new Factory[] { perLevel, chained }) {
+			BDD x1 = factory.makeVar(1), x2 = factory.makeVar(2), x3 = factory.makeVar(3);
+			x1.xor(x2).orWith(x3.copy()).free();
+			x1.andWith(x2).orWith(x3);
+			factory.gc();
+		}
+
+		for (int var = 0; var < 5; var++)
+			assertEquals(chained.nodesAtLevel(var), perLevel.nodesAtLevel(var));
+
+		perLevel.done();
+		chained.done();
+	}
+}
@@ -19,6 +19,26 @@ public class ResizingAndGarbageCollectedUniqueTableTest {
 		ut = new ResizingAndGarbageCollectedUniqueTable(10, 10, factoryMock);
 	}
 
+	@Test
+	public void testGetAll() {
+		int[] vars = new int[1000], lows = new int[1000], highs = new int[1000], nodes = new int[1000];
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = i % 7;
+			lows[i] = i / 2;
+			highs[i] = i / 2 + 1;
+		}
+
+		// the first batch creates the nodes and resizes the table
+		ut.getAll(vars, lows, highs, nodes);
+		for (int i = 0; i < vars.length; i++)
+			assertEquals(nodes[i], ut.get(vars[i], lows[i], highs[i]));
+
+		// the second batch finds them
+		int[] again = new int[1000];
+		ut.getAll(vars, lows, highs, again);
+		assertArrayEquals(nodes, again);
+	}
+
 	@Test
 	public void testCompactTable1() {
 		// terminals
@@ -66,6 +86,41 @@ public class ResizingAndGarbageCollectedUniqueTableTest {
 		assertEquals(3, ut.get(25, 2, 1));	// was 25, 3, 1
 	}
 
+	@Test
+	public void testCompactTableReclaimsChunks() {
+		// terminals
+		ut.get(Integer.MAX_VALUE - 1, -1, -1);
+		ut.get(Integer.MAX_VALUE, -1, -1);
+
+		ut.get(3, 0, 1);
+		ut.get(4, 0, 1);
+
+		// let's kill both nodes
+		boolean[] aliveNodes = new boolean[] { true, true, false, false };
+		assertEquals(2, ut.compactTable(aliveNodes));
+		Arrays.fill(ut.H, -1);
+		ut.updateHashTable();
+
+		// the next node is allocated right after the survivors
+		assertEquals(2, ut.get(5, 0, 1));
+		assertEquals(3, ut.get(6, 0, 1));
+	}
+
+	@Test
+	public void testNodesCountExcludesUnusedSlotsOfChunks() throws InterruptedException {
+		ut = new ResizingAndGarbageCollectedUniqueTable(10000, 10, factoryMock);
+		ut.get(3, 0, 1);
+		ut.get(4, 0, 1);
+
+		// another thread reserves its own chunk
+		Thread other = new Thread(() -> ut.get(5, 0, 1));
+		other.start();
+		other.join();
+
+		assertTrue(ut.nextPos > 3);
+		assertEquals(3, ut.nodesCount());
+	}
+
 	@Test
 	public void testUpdateHashTable1() {
 		ut.get(3, 0, 1);
@@ -23,4 +23,19 @@ public class RestrictCacheTest {
 		cache.put(6, 8, false, 15);
 		assertEquals(15, cache.get(6, 8, false));
 	}
+
+	@Test
+	public void testRemap() {
+		cache.put(10, 2, true, 20);
+		cache.put(11, 2, false, 21);
+		cache.put(12, 3, true, 30);
+
+		// 10 and 20 move down by one, 11 dies, 12 and 30 stay
+		cache.remap(id -> id == 11 ? -1 : id == 10 || id == 20 ? id - 1 : id);
+
+		assertEquals(19, cache.get(9, 2, true));
+		assertEquals(-1, cache.get(10, 2, true));
+		assertEquals(-1, cache.get(11, 2, false));
+		assertEquals(30, cache.get(12, 3, true));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+public class SegmentedUniqueTableTest extends AbstractSegmentedUniqueTableTest<int[]> {
+
+	@Override
+	protected SegmentedUniqueTable mk() {
+		return new SegmentedUniqueTable(10, 10, mock(Factory.class));
+	}
+
+	@Override
+	protected SegmentedUniqueTable mk(int segmentBits) {
+		return new SegmentedUniqueTable(10, 10, mock(Factory.class), segmentBits);
+	}
+
+	@Test
+	public void testResizeDoesNotMoveNodes() {
+		for (int i = 0; i < 16; i++)
+			ut.get(i, i + 1, i + 2);
+
+		int[] firstSegment = ut.segmentOf(0);
+		for (int i = 16; i < 1000; i++)
+			ut.get(i, i + 1, i + 2);
+
+		assertSame(firstSegment, ut.segmentOf(0));
+		assertEquals(5, firstSegment[5 * SimpleUniqueTable.NODE_SIZE + SimpleUniqueTable.VAR_OFFSET]);
+	}
+}
@@ -0,0 +1,73 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SetAssociativeComputationCacheTest {
+
+	private SetAssociativeComputationCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new SetAssociativeComputationCache(100);
+	}
+
+	@Test
+	public void testGetPut() {
+		assertEquals(-1, cache.get(Operator.AND, 3, 5));
+
+		cache.put(Operator.AND, 3, 5, 42);
+		assertEquals(42, cache.get(Operator.AND, 3, 5));
+		// and is symmetrical
+		assertEquals(42, cache.get(Operator.AND, 5, 3));
+		assertEquals(-1, cache.get(Operator.OR, 3, 5));
+
+		cache.put(Operator.IMP, 3, 5, 7);
+		assertEquals(-1, cache.get(Operator.IMP, 5, 3));
+
+		cache.put(Operator.AND, 3, 5, 43);
+		assertEquals(43, cache.get(Operator.AND, 3, 5));
+
+		cache.clear();
+		assertEquals(-1, cache.get(Operator.AND, 3, 5));
+	}
+
+	@Test
+	public void testCollidingEntriesSurvive() {
+		// a single set: four entries fit, the fifth evicts the least recently used
+		cache = new SetAssociativeComputationCache(4, 4);
+		for (int bdd = 0; bdd < 4; bdd++)
+			cache.put(Operator.XOR, bdd, 10, bdd);
+
+		for (int bdd = 0; bdd < 4; bdd++)
+			assertEquals(bdd, cache.get(Operator.XOR, bdd, 10));
+
+		// the hit moves 0 forward, hence 1 is now the oldest
+		assertEquals(0, cache.get(Operator.XOR, 0, 10));
+		cache.put(Operator.XOR, 4, 10, 4);
+		assertEquals(-1, cache.get(Operator.XOR, 1, 10));
+		assertEquals(0, cache.get(Operator.XOR, 0, 10));
+		assertEquals(4, cache.get(Operator.XOR, 4, 10));
+	}
+
+	@Test
+	public void testCopyAndRemap() {
+		cache = new SetAssociativeComputationCache(1000);
+		for (int bdd = 0; bdd < 50; bdd++)
+			cache.put(Operator.OR, bdd, bdd + 2, bdd + 4);
+
+		SetAssociativeComputationCache other = new SetAssociativeComputationCache(2000);
+		cache.copyTo(other, 0, 500);
+		cache.copyTo(other, 500, 1000);
+		for (int bdd = 0; bdd < 50; bdd++)
+			assertEquals(bdd + 4, other.get(Operator.OR, bdd, bdd + 2));
+
+		// odd nodes get collected, the others halve their index
+		other.remap(id -> id % 2 == 0 ? id / 2 : -1);
+		assertEquals(4, other.get(Operator.OR, 2, 3));
+		assertEquals(-1, other.get(Operator.OR, 4, 6));
+		assertEquals(-1, other.get(Operator.OR, 3, 5));
+	}
+}
@@ -0,0 +1,88 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class UniqueTableKindsTest {
+
+	@Parameter
+	public UniqueTableKind kind;
+
+	private ResizingAndGarbageCollectedUniqueTable ut;
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> kinds() {
+		List<Object[]> kinds = new ArrayList<>();
+		for (UniqueTableKind kind: UniqueTableKind.values())
+			kinds.add(new Object[] { kind });
+
+		return kinds;
+	}
+
+	@Before
+	public void setUp() {
+		Factory factory = mock(Factory.class);
+
+		// segments of 16 nodes, so that resizes add segments
+		if (kind == UniqueTableKind.SEGMENTED)
+			ut = new SegmentedUniqueTable(10, 10, factory, 4);
+		else if (kind == UniqueTableKind.OFF_HEAP)
+			ut = new OffHeapUniqueTable(10, 10, factory, 4);
+		else
+			ut = kind.mk(10, 10, factory);
+	}
+
+	@Test
+	public void testGetIsCanonicalAcrossResizes() {
+		// terminals
+		ut.get(Integer.MAX_VALUE - 1, -1, -1);
+		ut.get(Integer.MAX_VALUE, -1, -1);
+
+		// children exist, since some tables compute hash codes from them
+		int[] nodes = new int[1000], lows = new int[1000];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = ut.get(i % 7, lows[i] = i == 0 ? 0 : nodes[i - 1], 1);
+
+		assertTrue(ut.getSize() >= nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			assertEquals(nodes[i], ut.get(i % 7, lows[i], 1));
+			assertEquals(i % 7, ut.var(nodes[i]));
+			assertEquals(lows[i], ut.low(nodes[i]));
+			assertEquals(1, ut.high(nodes[i]));
+		}
+	}
+
+	@Test
+	public void testCompactTable() {
+		// terminals
+		ut.get(Integer.MAX_VALUE - 1, -1, -1);
+		ut.get(Integer.MAX_VALUE, -1, -1);
+
+		assertEquals(2, ut.get(3, 0, 1));
+		assertEquals(3, ut.get(4, 0, 1));
+		int hca = ut.hashCodeAux(3);
+
+		// let's kill node 2
+		assertEquals(1, ut.compactTable(new boolean[] { true, true, false, true }));
+		Arrays.fill(ut.H, -1);
+		ut.updateHashTable();
+
+		// x4 has been shifted back by one, with its identity
+		assertEquals(2, ut.get(4, 0, 1));
+		assertEquals(hca, ut.hashCodeAux(2));
+	}
+}
@@ -0,0 +1,78 @@
+package com.juliasoft.beedeedee.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class VersionedComputationCacheTest {
+
+	private VersionedComputationCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new VersionedComputationCache(100);
+	}
+
+	@Test
+	public void testGetPut() {
+		assertEquals(-1, cache.get(Operator.AND, 3, 5));
+
+		cache.put(Operator.AND, 3, 5, 42);
+		assertEquals(42, cache.get(Operator.AND, 3, 5));
+		// and is symmetrical
+		assertEquals(42, cache.get(Operator.AND, 5, 3));
+		assertEquals(-1, cache.get(Operator.OR, 3, 5));
+
+		cache.put(Operator.IMP, 3, 5, 7);
+		assertEquals(-1, cache.get(Operator.IMP, 5, 3));
+
+		cache.clear();
+		assertEquals(-1, cache.get(Operator.AND, 3, 5));
+	}
+
+	@Test
+	public void testOverwrite() {
+		cache.put(Operator.XOR, 1, 2, 10);
+		cache.put(Operator.XOR, 1, 2, 11);
+		assertEquals(11, cache.get(Operator.XOR, 1, 2));
+
+		// a colliding entry replaces the previous one
+		cache.put(Operator.XOR, 1, 102, 12);
+		assertEquals(-1, cache.get(Operator.XOR, 1, 2));
+		assertEquals(12, cache.get(Operator.XOR, 1, 102));
+	}
+
+	@Test
+	public void testConcurrentReadersNeverSeeTornEntries() throws InterruptedException {
+		AtomicBoolean torn = new AtomicBoolean();
+		Thread[] threads = new Thread[4];
+
+		for (int t = 0; t < threads.length; t++) {
+			int seed = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 200000; i++) {
+					int bdd1 = (i * 31 + seed) % 1000, bdd2 = (i * 17) % 1000;
+					if (i % 2 == 0)
+						cache.put(Operator.AND, bdd1, bdd2, Math.min(bdd1, bdd2) * 1000 + Math.max(bdd1, bdd2));
+					else {
+						int result = cache.get(Operator.AND, bdd1, bdd2);
+						if (result >= 0 && result != Math.min(bdd1, bdd2) * 1000 + Math.max(bdd1, bdd2))
+							torn.set(true);
+					}
+				}
+			});
+		}
+
+		for (Thread thread: threads)
+			thread.start();
+
+		for (Thread thread: threads)
+			thread.join();
+
+		assertTrue(!torn.get());
+	}
+}